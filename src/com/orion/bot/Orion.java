@@ -29,13 +29,16 @@ package com.orion.bot;
 
 import java.io.OutputStreamWriter;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.impl.Log4JLogger;
@@ -46,25 +49,35 @@ import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.EventBus;
 import com.orion.command.Command;
 import com.orion.console.Console;
-import com.orion.control.AliasC;
-import com.orion.control.CallvoteC;
-import com.orion.control.ClientC;
-import com.orion.control.GroupC;
-import com.orion.control.IpAliasC;
-import com.orion.control.PenaltyC;
+import com.orion.control.AliasCtl;
+import com.orion.control.CallvoteCtl;
+import com.orion.control.ClientCtl;
+import com.orion.control.GroupCtl;
+import com.orion.control.IpAliasCtl;
+import com.orion.control.PenaltyCtl;
+import com.orion.event.Event;
 import com.orion.exception.ParserException;
+import com.orion.misc.AuthStage;
 import com.orion.misc.CommandProcessor;
+import com.orion.misc.LagMonitor;
+import com.orion.misc.LogSource;
+import com.orion.misc.ParserStage;
+import com.orion.misc.Rcon;
 import com.orion.misc.Reader;
 import com.orion.misc.RegisteredCommand;
+import com.orion.misc.Replay;
+import com.orion.misc.Subscriptions;
 import com.orion.parser.Parser;
 import com.orion.plugin.Plugin;
 import com.orion.storage.DataSourceManager;
 import com.orion.storage.MySqlDataSourceManager;
 import com.orion.urt.Color;
+import com.orion.urt.Cvar;
 import com.orion.urt.Game;
 import com.orion.utility.Configuration;
 import com.orion.utility.MultiKeyHashMap;
@@ -80,6 +93,7 @@ public class Orion {
     public static final String VERSION  = "0.1";
     
     public Log log;
+    public org.slf4j.Logger logger;
     public Game game;
     public Parser parser;
     public Console console;
@@ -87,22 +101,31 @@ public class Orion {
     public DataSourceManager storage;
     
     public Thread reader;
+    public Thread parserstage;
     public Thread commandproc;
     
-    public AliasC aliases;
-    public CallvoteC callvotes;
-    public ClientC clients;
-    public GroupC groups;
-    public IpAliasC ipaliases;
-    public PenaltyC penalties;
+    public Reader reactor;
+    public List<LogSource> sources;
     
+    public AliasCtl aliases;
+    public CallvoteCtl callvotes;
+    public ClientCtl clients;
+    public GroupCtl groups;
+    public IpAliasCtl ipaliases;
+    public PenaltyCtl penalties;
+    
+    public Map<String, Cvar> cvars;
+    public BlockingQueue<Event> eventqueue;
     public BlockingQueue<Command> commandqueue;
     
-    public Map<String, Timer> schedule;
+    public Timer timer;
+    public Map<String, TimerTask> schedule;
     public Map<String, Plugin> plugins;
     public MultiKeyMap<String, String, RegisteredCommand> regcommands;
     
     public EventBus eventBus;
+    public Subscriptions subscriptions;
+    public AuthStage authstage;
     
     public Locale locale;
     public String timeformat;
@@ -117,6 +140,24 @@ public class Orion {
      * @param  path The Orion configuration file path
      **/
     public Orion(String path) {
+        this(path, null, null);
+    }
+    
+    
+    /**
+     * Object constructor.<br>
+     * Several <tt>Orion</tt> instances running in the same JVM can share the 
+     * same log reader and cron timer so that the amount of <tt>Threads</tt>
+     * doesn't grow with the amount of game servers being managed
+     * 
+     * @author Daniele Pantaleone
+     * @param  path The Orion configuration file path
+     * @param  reactor A running <tt>Reader</tt> serving the log sources of all the
+     *                 <tt>Orion</tt> instances or <tt>null</tt> to start a dedicated one
+     * @param  timer The <tt>Timer</tt> executing the cronjobs of all the <tt>Orion</tt>
+     *               instances or <tt>null</tt> to create a dedicated one
+     **/
+    public Orion(String path, Reader reactor, Timer timer) {
         
         try {
             
@@ -127,7 +168,7 @@ public class Orion {
             //////////////////////////////////////////////////// LOGGER SETUP /////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             Logger.getRootLogger().setLevel(Level.OFF);
-            Logger logger = Logger.getLogger("Orion");
+            Logger log4j = Logger.getLogger(BOTNAME);
             
             FileAppender fa = new FileAppender();
             
@@ -137,7 +178,7 @@ public class Orion {
             fa.setName("FILE");
             fa.activateOptions();
             
-            logger.addAppender(fa);
+            log4j.addAppender(fa);
            
             if (this.config.getBoolean("logfile", "console")) {
 
@@ -147,15 +188,19 @@ public class Orion {
                 ca.setName("CONSOLE");
                 ca.activateOptions();
 
-                logger.addAppender(ca);
+                log4j.addAppender(ca);
             
             }
             
             // Setting the log level for both the log appenders
-            logger.setLevel(Level.toLevel(this.config.getString("logfile", "level")));
+            log4j.setLevel(Level.toLevel(this.config.getString("logfile", "level")));
 
             // Creating the main Log object
-            this.log = new Log4JLogger(logger);
+            this.log = new Log4JLogger(log4j);
+            
+            // Logger of the components built on top of slf4j (log
+            // reader, parser stages, processors and the like)
+            this.logger = LoggerFactory.getLogger(BOTNAME);
             
             // We got a fully initialized logger utility now: printing some info messages
             this.log.info("Starting " + BOTNAME + " " + VERSION + " [" + CODENAME + "] [ " + AUTHOR + " ] - " + WEBSITE);
@@ -174,7 +219,10 @@ public class Orion {
             ////////////////////////////////////////////// PRE INITIALIZED OBJECTS ////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             this.eventBus = new EventBus("events");
-            this.schedule = new LinkedHashMap<String, Timer>();
+            this.subscriptions = new Subscriptions(this.logger);
+            this.authstage = new AuthStage(this.logger, this.config.getInt("orion", "auththreads", 4));
+            this.timer = (timer != null) ? timer : new Timer("CRON");
+            this.schedule = new LinkedHashMap<String, TimerTask>();
             this.game = new Game();
             
             
@@ -184,12 +232,14 @@ public class Orion {
             this.storage = new MySqlDataSourceManager(this.config.getString("storage", "username"), 
                                                       this.config.getString("storage", "password"), 
                                                       this.config.getString("storage", "connection"), 
-                                                      this.log);
+                                                      this.logger);
             
             
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             //////////////////////////////////////////////////// BUFFERS SETUP ////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+            this.cvars = new ConcurrentHashMap<String, Cvar>();
+            this.eventqueue = new ArrayBlockingQueue<Event>(this.config.getInt("orion", "eventqueue", 100));
             this.commandqueue = new ArrayBlockingQueue<Command>(this.config.getInt("orion", "commandqueue", 100));
             this.regcommands = new MultiKeyHashMap<String, String, RegisteredCommand>();
             
@@ -198,30 +248,36 @@ public class Orion {
             //////////////////////////////////////////////////// CONSOLE SETUP ////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             this.console = (Console)Class.forName("com.orion.console." + this.config.getString("orion", "game") + "Console")
-                                            .getConstructor(String.class, int.class, String.class, Orion.class)
-                                            .newInstance(this.config.getString("server", "rconaddress"),
-                                                         this.config.getInt("server", "rconport"),
-                                                         this.config.getString("server", "rconpassword"),
-                                                         this);
+                                            .getConstructor(Log.class, Rcon.class, Map.class)
+                                            .newInstance(this.log,
+                                                         new Rcon(this.config.getString("server", "rconaddress"),
+                                                                  this.config.getInt("server", "rconport", 27960),
+                                                                  this.config.getString("server", "rconpassword")),
+                                                         this.cvars);
             
             
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             /////////////////////////////////////////////////// CONTROLLERS SETUP /////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            this.groups = new GroupC(this);
-            this.clients = new ClientC(this);
-            this.aliases = new AliasC(this);
-            this.callvotes = new CallvoteC(this);
-            this.ipaliases = new IpAliasC(this);
-            this.penalties = new PenaltyC(this);
+            this.groups = new GroupCtl(this);
+            this.clients = new ClientCtl(this);
+            this.aliases = new AliasCtl(this);
+            this.callvotes = new CallvoteCtl(this);
+            this.ipaliases = new IpAliasCtl(this);
+            this.penalties = new PenaltyCtl(this);
             
             
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////// PARSER SETUP/////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+            // The parser asks the subscriptions whether an event is worth
+            // generating: plugins are added to them as soon as they are loaded.
+            // Connecting clients are authenticated on the auth stage lanes
             this.parser = (Parser)Class.forName("com.orion.parser." + this.config.getString("orion", "game") + "Parser")
-                                       .getConstructor(Orion.class)
-                                       .newInstance(this);
+                                       .getConstructor(Log.class, Console.class, GroupCtl.class, ClientCtl.class, BlockingQueue.class, 
+                                                       Map.class, Subscriptions.class, AuthStage.class)
+                                       .newInstance(this.log, this.console, this.groups, this.clients, this.eventqueue, 
+                                                    this.cvars, this.subscriptions, this.authstage);
             
             
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -237,6 +293,7 @@ public class Orion {
                     this.log.debug("Loading plugin [ " + Character.toUpperCase(entry.getKey().charAt(0)) + entry.getKey().substring(1).toLowerCase() + " ]");
                     Plugin plugin = Plugin.getPlugin(entry.getKey(), new XmlConfiguration(entry.getValue(), this.log), this);
                     this.plugins.put(entry.getKey(), plugin);
+                    this.subscriptions.add(plugin);
 
                 } catch (ClassNotFoundException | NoSuchMethodException | SecurityException | InstantiationException |
                          IllegalAccessException | IllegalArgumentException | InvocationTargetException | ParserException e) {
@@ -275,7 +332,17 @@ public class Orion {
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             ///////////////////////////////////////////////////// GAME SERVER SYNC ////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            List<List<String>> status = this.console.getStatus();
+            List<String> replay = new ArrayList<String>();
+            
+            for (String logfile : this.config.getString("replay", "logfiles", "").split(",")) {
+                // Collecting archived log files to be replayed
+                if (!logfile.trim().isEmpty()) replay.add(logfile.trim());
+            }
+            
+            // Events generated by a log replay must not affect the game server
+            if (!replay.isEmpty()) this.console.setReadOnly(true);
+            
+            List<List<String>> status = replay.isEmpty() ? this.console.getStatus() : new ArrayList<List<String>>();
             
             if (status == null) {
                 this.log.warn("Unable to synchronize current server status: RCON response is NULL");
@@ -306,9 +373,21 @@ public class Orion {
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             /////////////////////////////////////////////////////// THREADS SETUP /////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            this.reader = new Thread(new Reader(this.config.getString("server", "logfile"), this.config.getInt("server", "logdelay"), this));
+            if ((replay.isEmpty()) && (reactor != null)) {
+                ParserStage stage = new ParserStage(this.logger, this.parser, new LagMonitor(this.logger, this.config), this.config.getInt("orion", "parserthreads", 1));
+                this.reactor = reactor;
+                this.sources = Reader.getLogSources(this.logger, stage.getRing(), this.config);
+                this.parserstage = new Thread(stage);
+                this.parserstage.setName("PARSER");
+            } else if (replay.isEmpty()) {
+                this.reader = new Thread(new Reader(this.logger, this.parser, this.config));
+                this.reader.setName("READER");
+            } else {
+                this.reader = new Thread(new Replay(this.logger, this.parser, this.console, replay, this.config.getDouble("replay", "speed", 0)));
+                this.reader.setName("REPLAY");
+            }
+            
             this.commandproc = new Thread(new CommandProcessor(this));
-            this.reader.setName("READER");
             this.commandproc.setName("COMMAND");
             
             
@@ -316,7 +395,15 @@ public class Orion {
             ////////////////////////////////////////////////////// THREADS STARTUP ////////////////////////////////////////////////////
             ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             this.commandproc.start();
-            this.reader.start();
+            
+            if (this.reader != null) {
+                this.reader.start();
+            } else {
+                // Feeding the shared log reader
+                this.parserstage.start();
+                for (LogSource source : this.sources)
+                    this.reactor.register(source);
+            }
             
 			///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 			//////////////////////////////////////////////////// NOTICE BOT RUNNING ///////////////////////////////////////////////////
@@ -326,10 +413,9 @@ public class Orion {
             
         } catch (Exception e) {
             
-        	// Stopping Threads if they are alive
-        	if ((this.commandproc != null) && (this.commandproc.isAlive())) this.commandproc.interrupt();
-        	if ((this.reader != null) && (this.reader.isAlive())) this.reader.interrupt();
-        	
+            // Stopping what has been started so far
+            this.stop();
+            
             // Logging the Exception. Orion is not going to work if an Exception is catched at startup time
             this.log.fatal("Unable to start " + BOTNAME + " " + VERSION + " [" + CODENAME + "] [ " + AUTHOR + " ] - " + WEBSITE, e);
             
@@ -338,6 +424,32 @@ public class Orion {
     }
     
     
+    /**
+     * Stop Orion: interrupt the <tt>Threads</tt> still alive, remove our log sources
+     * from the shared log reader and stop the auth stage. The shared log reader
+     * and cron <tt>Timer</tt> are left running for the other <tt>Orion</tt> instances
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void stop() {
+        
+        // Stopping Threads if they are alive
+        if ((this.commandproc != null) && (this.commandproc.isAlive())) this.commandproc.interrupt();
+        if ((this.reader != null) && (this.reader.isAlive())) this.reader.interrupt();
+        if ((this.parserstage != null) && (this.parserstage.isAlive())) this.parserstage.interrupt();
+        
+        // Removing our log sources from the shared log reader
+        if ((this.reactor != null) && (this.sources != null)) {
+            for (LogSource source : this.sources) this.reactor.unregister(source);
+        }
+        
+        // Pending authentications are discarded: the
+        // auth stage lanes would keep the JVM alive
+        if (this.authstage != null) this.authstage.shutdown();
+        
+    }
+    
+    
     /**
      * Return the amount of milliseconds since the BOT started
      * 
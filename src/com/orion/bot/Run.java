@@ -28,22 +28,57 @@
 package com.orion.bot;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Timer;
+
+import org.slf4j.LoggerFactory;
+
+import com.orion.misc.LogSource;
+import com.orion.misc.Reader;
 
 public class Run {
     
     /**
-     * Run Orion
+     * Run Orion.<br>
+     * When more than one configuration file is given, all the <tt>Orion</tt> 
+     * instances share the same log reader <tt>Thread</tt> and cron <tt>Timer</tt>
      * 
      * @author Daniele Pantaleone
      * @param  args <tt>Orion</tt> configuration file path
      **/
     public static void main(String[] args) {
         
-        List<Orion> bots = new ArrayList<Orion>();
+        final List<Orion> bots = new ArrayList<Orion>();
+        
+        // Releasing the resources held by every Orion
+        // instance when the JVM is shutting down
+        Runtime.getRuntime().addShutdownHook(new Thread("SHUTDOWN") {
+            
+            @Override
+            public void run() {
+                for (Orion bot : bots)
+                    bot.stop();
+            }
+            
+        });
+        
+        if (args.length == 1) {
+            bots.add(new Orion(args[0]));
+            return;
+        }
+        
+        // Shared log reader: it will serve the log
+        // sources registered by every Orion instance
+        Reader reactor = new Reader(LoggerFactory.getLogger("Orion"), Collections.<LogSource>emptyList(), 1000);
+        Thread reader = new Thread(reactor);
+        reader.setName("READER");
+        reader.start();
+        
+        Timer timer = new Timer("CRON");
         
         for (String config: args) {
-            bots.add(new Orion(config));
+            bots.add(new Orion(config, reactor, timer));
         }
 
     }
@@ -279,6 +279,25 @@ public interface Console {
     public abstract void unban(Client client) throws RconException;
     
     
+    /**
+     * Tells whether the console is in read only mode
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the console is in read only mode, <tt>false</tt> otherwise
+     **/
+    public abstract boolean isReadOnly();
+    
+    
+    /**
+     * Enable/Disable the console read only mode.<br>
+     * While in read only mode no RCON command reaches the game server
+     * 
+     * @author Daniele Pantaleone
+     * @param  readonly <tt>true</tt> to enable the read only mode, <tt>false</tt> otherwise
+     **/
+    public abstract void setReadOnly(boolean readonly);
+    
+    
     /**
      * Write an RCON command in the remote
      * console without returning the server response
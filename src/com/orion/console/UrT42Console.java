@@ -59,6 +59,8 @@ public class UrT42Console {
     
     private Map<String, Cvar> cvarList;
     
+    private volatile boolean readonly = false;
+    
     
     /**
      * Object constructor
@@ -102,13 +104,13 @@ public class UrT42Console {
             if (!this.authEnable.getBoolean())
                 throw new UnsupportedOperationException("auth system is disabled");
             
-            this.rcon.send("addip " + client.getIp().getHostAddress());
-            this.rcon.send("auth-ban " + client.getSlot() + " 0 0 0");
+            this.write("addip " + client.getIp().getHostAddress());
+            this.write("auth-ban " + client.getSlot() + " 0 0 0");
     
         } catch(NullPointerException | UnsupportedOperationException e) {
             
-            this.rcon.send("addip " + client.getIp().getHostAddress());
-            this.rcon.send("kick " + client.getSlot());
+            this.write("addip " + client.getIp().getHostAddress());
+            this.write("kick " + client.getSlot());
             
         }
   
@@ -122,7 +124,7 @@ public class UrT42Console {
      * @throws RconException If the RCON commands fails in being executed
      **/
     public void cyclemap() throws RconException {
-        this.rcon.send("cyclemap");
+        this.write("cyclemap");
     }
     
     
@@ -712,6 +714,33 @@ public class UrT42Console {
     }
     
     
+    /**
+     * Tells whether the console is in read only mode
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the console is in read only mode, <tt>false</tt> otherwise
+     **/
+    public boolean isReadOnly() {
+        return this.readonly;
+    }
+    
+    
+    /**
+     * Enable/Disable the console read only mode.<br>
+     * While in read only mode no RCON command reaches the game server: commands
+     * which don't expect a response are silently discarded while commands which
+     * expect a response fail with an <tt>RconException</tt>. This is meant to be
+     * used when replaying old log files, so we don't kick, ban or message
+     * players according to events which happened in the past
+     * 
+     * @author Daniele Pantaleone
+     * @param  readonly <tt>true</tt> to enable the read only mode, <tt>false</tt> otherwise
+     **/
+    public void setReadOnly(boolean readonly) {
+        this.readonly = readonly;
+    }
+    
+    
     /**
      * Write an RCON command in the remote
      * console without returning the server response
@@ -721,7 +750,15 @@ public class UrT42Console {
      * @throws RconException If the RCON command fails in being executed
      **/
     public void write(String command) throws RconException {
+        
+        if (this.readonly) {
+            // Not sending anything to the game server
+            this.log.trace("Discarding RCON command (read only console): " + command);
+            return;
+        }
+        
         this.rcon.send(command);
+        
     }
     
     
@@ -743,6 +780,9 @@ public class UrT42Console {
             return null;
         }
         
+        if (this.readonly)
+            throw new RconException("could not execute RCON command (read only console): " + command);
+        
         return this.rcon.send(command, true);
     
     }
@@ -31,9 +31,9 @@ import java.net.UnknownHostException;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import net.goreclan.rcon.RconException;
 
@@ -75,7 +75,24 @@ public class ClientCtl {
         this.console = orion.console;
         this.timezone = orion.timezone;
         this.dao = new ClientDaoMySql(orion);
-        this.clients = new LinkedList<Client>();
+        this.clients = new CopyOnWriteArrayList<Client>();
+    }
+    
+    
+    /**
+     * Object constructor<br>
+     * Create a <tt>ClientCtl</tt> sharing the storage layer of the given 
+     * one but with its own (empty) online <tt>Client</tt> list
+     * 
+     * @author Daniele Pantaleone
+     * @param  clientCtl The <tt>ClientCtl</tt> object to be used as template
+     **/
+    public ClientCtl(ClientCtl clientCtl) {
+        this.log = clientCtl.log;
+        this.console = clientCtl.console;
+        this.timezone = clientCtl.timezone;
+        this.dao = clientCtl.dao;
+        this.clients = new CopyOnWriteArrayList<Client>();
     }
     
     
@@ -429,7 +446,7 @@ public class ClientCtl {
      * @return A <tt>List</tt> containing all the online clients
      **/
     public List<Client> getList() {
-        return this.clients;
+        return new LinkedList<Client>(this.clients);
     }
     
     
@@ -498,15 +515,11 @@ public class ClientCtl {
      * @throws UnsupportedOperationException If the remove operation is not supported by this <tt>List</tt> 
      * @return The <tt>Client</tt> object matching the given id or <tt>null</tt> if we have no match
      **/
-    public Client removeById(int id) throws UnsupportedOperationException {
-        
-        Client client = null;
-        Iterator<Client> i = this.clients.iterator();
+    public synchronized Client removeById(int id) throws UnsupportedOperationException {
         
-        while (i.hasNext()) { 
-            client = i.next();
+        for (Client client : this.clients) { 
             if (client.getId() == id) {
-                i.remove();
+                this.clients.remove(client);
                 return client;
             }
         }
@@ -524,15 +537,11 @@ public class ClientCtl {
      * @throws UnsupportedOperationException If the remove operation is not supported by this <tt>List</tt> 
      * @return The <tt>Client</tt> object matching the given slot or <tt>null</tt> if we have no match
      **/
-    public Client removeBySlot(int slot) {
-        
-        Client client = null;
-        Iterator<Client> i = this.clients.iterator();
+    public synchronized Client removeBySlot(int slot) {
         
-        while (i.hasNext()) {
-            client = i.next();
+        for (Client client : this.clients) {
             if (client.getSlot() == slot) {
-                i.remove();
+                this.clients.remove(client);
                 return client;
             }
         }
@@ -548,17 +557,40 @@ public class ClientCtl {
      * @author Daniele Pantaleone
      * @param  client The <tt>Client</tt> object to be added to the online client <tt>List</tt>
      **/
-    public void add(Client client) {
+    public synchronized void add(Client client) {
         this.clients.add(client);
     }
     
     
+    /**
+     * Replace a <tt>Client</tt> object in the online client <tt>List</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  client The <tt>Client</tt> object to be replaced
+     * @param  replacement The <tt>Client</tt> object taking its place
+     * @return <tt>true</tt> if the <tt>Client</tt> has been replaced, <tt>false</tt> 
+     *         if it was not in the online client <tt>List</tt> anymore
+     **/
+    public synchronized boolean replace(Client client, Client replacement) {
+        
+        for (int i = 0; i < this.clients.size(); i++) {
+            if (this.clients.get(i) == client) {
+                this.clients.set(i, replacement);
+                return true;
+            }
+        }
+        
+        return false;
+        
+    }
+    
+    
     /**
      * Clear the online client <tt>List</tt>
      * 
      * @author Daniele Pantaleone
      **/
-    public void clear() {
+    public synchronized void clear() {
         this.clients.clear();
     }
    
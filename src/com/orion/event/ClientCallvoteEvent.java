@@ -29,11 +29,14 @@ package com.orion.event;
 
 import com.orion.domain.Callvote;
 import com.orion.domain.Client;
+import com.orion.misc.LineSlice;
 
 public class ClientCallvoteEvent extends Event {
 
     private final Client client;
-    private final Callvote callvote;
+    private final LineSlice type;
+    private final LineSlice data;
+    private Callvote callvote;
     
     /**
      * Object constructor
@@ -45,6 +48,25 @@ public class ClientCallvoteEvent extends Event {
     public ClientCallvoteEvent(Client client, Callvote callvote) {  
         this.client = client;
         this.callvote = callvote;
+        this.type = null;
+        this.data = null;
+    }
+    
+    
+    /**
+     * Object constructor.<br>
+     * The <tt>Callvote</tt> object is built on the first <tt>getCallvote</tt> call
+     * 
+     * @author Daniele Pantaleone
+     * @param  client The <tt>Client</tt> who issued the vote
+     * @param  type The slice of the log line holding the callvote type
+     * @param  data The slice of the log line holding the callvote data 
+     *              or <tt>null</tt> if the callvote has no data
+     **/
+    public ClientCallvoteEvent(Client client, LineSlice type, LineSlice data) {  
+        this.client = client;
+        this.type = type;
+        this.data = data;
     }
     
     
@@ -65,8 +87,17 @@ public class ClientCallvoteEvent extends Event {
      * @author Daniele Pantaleone
      * @return The <tt>Callvote</tt> object
      **/
-    public Callvote getCallvote() {
+    public synchronized Callvote getCallvote() {
+        
+        // every subscriber must get the same object
+        if (this.callvote == null) {
+            this.callvote = new Callvote.Builder(this.client, this.type.toString())
+                                        .data(this.data != null ? this.data.toString() : null)
+                                        .build();
+        }
+        
         return this.callvote;
+        
     }
     
 }
\ No newline at end of file
@@ -28,14 +28,15 @@
 package com.orion.event;
 
 import com.orion.domain.Client;
+import com.orion.misc.LineSlice;
 
 public class ClientRadioEvent extends Event {
 
     private final Client client;
     private final int msg_group;
     private final int msg_id;
-    private final String location;
-    private final String message;
+    private final LineSlice location;
+    private final LineSlice message;
     
     /**
      * Object constructor
@@ -48,6 +49,21 @@ public class ClientRadioEvent extends Event {
      * @param  message The message attached to the radio command
      **/
     public ClientRadioEvent(Client client, int msg_group, int msg_id, String location, String message) {  
+        this(client, msg_group, msg_id, new LineSlice(location), new LineSlice(message));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone 
+     * @param  client The <tt>Client</tt> who issued the radio command
+     * @param  msg_group The message group
+     * @param  msg_id The message id
+     * @param  location The slice of the log line holding the map location name
+     * @param  message The slice of the log line holding the message attached to the radio command
+     **/
+    public ClientRadioEvent(Client client, int msg_group, int msg_id, LineSlice location, LineSlice message) {  
         this.client = client;
         this.msg_group = msg_group;
         this.msg_id = msg_id;
@@ -96,7 +112,7 @@ public class ClientRadioEvent extends Event {
      * @return The map location name
      **/
     public String getLocation() {
-        return this.location;
+        return this.location.toString();
     }
     
     
@@ -107,7 +123,7 @@ public class ClientRadioEvent extends Event {
      * @return The message attached to the radio command
      **/
     public String getMessage() {
-        return this.message;
+        return this.message.toString();
     }
        
 }
\ No newline at end of file
@@ -28,11 +28,12 @@
 package com.orion.event;
 
 import com.orion.domain.Client;
+import com.orion.misc.LineSlice;
 
 public class ClientSayEvent extends Event {
 
     private final Client client;
-    private final String message;
+    private final LineSlice message;
     
     
     /**
@@ -43,6 +44,18 @@ public class ClientSayEvent extends Event {
      * @param  message The sentence said
      **/
     public ClientSayEvent(Client client, String message) {
+        this(client, new LineSlice(message));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone 
+     * @param  client The <tt>Client</tt> who said something
+     * @param  message The slice of the log line holding the sentence said
+     **/
+    public ClientSayEvent(Client client, LineSlice message) {
         this.client = client;
         this.message = message;
     }
@@ -66,7 +79,7 @@ public class ClientSayEvent extends Event {
      * @return The sentence said
      **/
     public String getMessage() {
-        return this.message;
+        return this.message.toString();
     }
        
 }
\ No newline at end of file
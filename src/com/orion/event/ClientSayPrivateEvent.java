@@ -28,12 +28,13 @@
 package com.orion.event;
 
 import com.orion.domain.Client;
+import com.orion.misc.LineSlice;
 
 public class ClientSayPrivateEvent extends Event {
 
     private final Client client;
     private final Client target;
-    private final String message;
+    private final LineSlice message;
     
     /**
      * Object constructor
@@ -44,6 +45,19 @@ public class ClientSayPrivateEvent extends Event {
      * @param  message The sentence said
      **/
     public ClientSayPrivateEvent(Client client, Client target, String message) {
+        this(client, target, new LineSlice(message));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone 
+     * @param  client The <tt>Client</tt> who said something
+     * @param  target The <tt>Client</tt> on which the /tell command has been performed
+     * @param  message The slice of the log line holding the sentence said
+     **/
+    public ClientSayPrivateEvent(Client client, Client target, LineSlice message) {
         this.client = client;
         this.target = target;
         this.message = message;
@@ -79,7 +93,7 @@ public class ClientSayPrivateEvent extends Event {
      * @return The sentence said
      **/
     public String getMessage() {
-        return this.message;
+        return this.message.toString();
     }
    
 }
\ No newline at end of file
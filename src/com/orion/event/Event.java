@@ -31,7 +31,8 @@ import org.joda.time.DateTime;
 
 public abstract class Event {
     
-    private final DateTime time;
+    private final long time;
+    private DateTime datetime;
     
     /**
      * Object constructor
@@ -39,7 +40,7 @@ public abstract class Event {
      * @author Daniele Pantaleone 
      **/
     public Event() {
-        this.time = new DateTime();
+        this.time = System.currentTimeMillis();
     }
     
     
@@ -50,7 +51,25 @@ public abstract class Event {
      * @return The time when the <tt>Event</tt> has been generated
      **/
     public DateTime getTime() {
+        
+        // built only when somebody asks for it: most events
+        // are processed without ever looking at their time
+        if (this.datetime == null)
+            this.datetime = new DateTime(this.time);
+        
+        return this.datetime;
+        
+    }
+    
+    
+    /**
+     * Return the time when the <tt>Event</tt> has been generated
+     * 
+     * @author Daniele Pantaleone
+     * @return The milliseconds from the epoch when the <tt>Event</tt> has been generated
+     **/
+    public long getMillis() {
         return this.time;
     }
       
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 6 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+public class AuthStage {
+    
+    private static final int THREADS = 4;
+    
+    private final Logger log;
+    private final ListeningExecutorService[] lanes;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     **/
+    public AuthStage(Logger log) {
+        this(log, THREADS);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  threads The number of threads authenticating clients
+     **/
+    public AuthStage(Logger log, int threads) {
+        
+        this.log = log;
+        this.lanes = new ListeningExecutorService[Math.max(1, threads)];
+        
+        // a single thread per lane: tasks of the same slot always
+        // end up in the same lane so they complete in submission order
+        for (int i = 0; i < this.lanes.length; i++)
+            this.lanes[i] = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("AUTH-" + i)
+                                                                                                                        .setDaemon(true)
+                                                                                                                        .build()));
+        
+        this.log.debug("Auth stage initialized: " + this.lanes.length + " threads");
+        
+    }
+    
+    
+    /**
+     * Submit a task concerning the given slot.<br>
+     * Tasks submitted for the same slot are executed one after 
+     * the other in submission order, different slots run in parallel
+     * 
+     * @author Daniele Pantaleone
+     * @param  slot The slot the task refers to
+     * @param  task The task to be executed
+     * @return A <tt>ListenableFuture</tt> holding the task result
+     **/
+    public <T> ListenableFuture<T> submit(int slot, Callable<T> task) {
+        return this.lanes[Math.abs(slot % this.lanes.length)].submit(task);
+    }
+    
+    
+    /**
+     * Stop the auth stage: pending tasks are discarded
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void shutdown() {
+        
+        for (ListeningExecutorService lane : this.lanes)
+            lane.shutdownNow();
+        
+        this.log.debug("Auth stage stopped");
+        
+    }
+    
+}
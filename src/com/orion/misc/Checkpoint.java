@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 16 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+public class Checkpoint {
+    
+    private final Path path;
+    
+    private long offset;
+    private int hash;
+    private String fileKey;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  path The path of the file where to store the checkpoint
+     **/
+    public Checkpoint(String path) {
+        this.path = Paths.get(path).toAbsolutePath();
+        this.offset = -1;
+        this.hash = 0;
+        this.fileKey = null;
+    }
+    
+    
+    /**
+     * Load the checkpoint from the file system
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If the checkpoint file cannot be read
+     * @return <tt>true</tt> if a checkpoint has been loaded, <tt>false</tt> if there is no checkpoint yet
+     **/
+    public boolean load() throws IOException {
+        
+        if (!Files.exists(this.path))
+            return false;
+        
+        Properties properties = new Properties();
+        
+        try (InputStream stream = Files.newInputStream(this.path)) {
+            properties.load(stream);
+        }
+        
+        try {
+            
+            this.offset = Long.parseLong(properties.getProperty("offset", "-1"));
+            this.hash = Integer.parseInt(properties.getProperty("hash", "0"));
+            this.fileKey = properties.getProperty("file");
+            
+        } catch (NumberFormatException e) {
+            throw new IOException("malformed checkpoint file: " + this.path, e);
+        }
+        
+        return this.offset >= 0;
+        
+    }
+    
+    
+    /**
+     * Store the checkpoint on the file system.<br>
+     * The checkpoint is written in a temporary file which then replaces 
+     * the previous one so we never leave a partially written checkpoint
+     * 
+     * @author Daniele Pantaleone
+     * @param  offset The offset of the first byte following the last processed line
+     * @param  hash The hash code of the last processed line
+     * @param  fileKey The key identifying the log file (inode), can be <tt>null</tt>
+     * @throws IOException If the checkpoint file cannot be written
+     **/
+    public void save(long offset, int hash, Object fileKey) throws IOException {
+        
+        this.offset = offset;
+        this.hash = hash;
+        this.fileKey = fileKey != null ? fileKey.toString() : null;
+        
+        Properties properties = new Properties();
+        properties.setProperty("offset", String.valueOf(this.offset));
+        properties.setProperty("hash", String.valueOf(this.hash));
+        
+        if (this.fileKey != null)
+            properties.setProperty("file", this.fileKey);
+        
+        Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        
+        try (OutputStream stream = Files.newOutputStream(temp)) {
+            properties.store(stream, "Orion log reader checkpoint");
+        }
+        
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+    }
+    
+    
+    /**
+     * Return the offset of the first byte following the last processed line
+     * 
+     * @author Daniele Pantaleone
+     * @return The offset of the first byte following the last processed line
+     **/
+    public long getOffset() {
+        return this.offset;
+    }
+    
+    
+    /**
+     * Return the hash code of the last processed line
+     * 
+     * @author Daniele Pantaleone
+     * @return The hash code of the last processed line
+     **/
+    public int getHash() {
+        return this.hash;
+    }
+    
+    
+    /**
+     * Tells whether the checkpoint has been taken on the log file identified by the given key
+     * 
+     * @author Daniele Pantaleone
+     * @param  fileKey The key identifying the log file (inode), can be <tt>null</tt>
+     * @return <tt>true</tt> if the checkpoint has been taken on the given log file, <tt>false</tt> otherwise
+     **/
+    public boolean isFile(Object fileKey) {
+        
+        // The file system doesn't provide file keys:
+        // we'll rely on the last line hash code only
+        if ((fileKey == null) || (this.fileKey == null))
+            return true;
+        
+        return this.fileKey.equals(fileKey.toString());
+        
+    }
+    
+    
+    /**
+     * Return the path of the checkpoint file
+     * 
+     * @author Daniele Pantaleone
+     * @return The path of the checkpoint file
+     **/
+    public Path getPath() {
+        return this.path;
+    }
+
+}
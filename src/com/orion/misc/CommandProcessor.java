@@ -31,11 +31,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.joda.time.DateTime;
 
 import org.slf4j.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.orion.annotation.Usage;
 import com.orion.command.Command;
 import com.orion.console.Console;
@@ -53,6 +56,9 @@ public class CommandProcessor implements Runnable {
     private BlockingQueue<Command> commandBus;
     private Map<String, RegisteredMethod> regMethod;
     
+    private final Watchdog watchdog;
+    private final ExecutorService slowLane;
+    
     
     /**
      * Object constructor
@@ -67,11 +73,37 @@ public class CommandProcessor implements Runnable {
                             Console console,
                             BlockingQueue<Command> commandBus,
                             Map<String, RegisteredMethod> regMethod) {
+        this(log, console, commandBus, regMethod, null);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Mathias Van Malderen, Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  console Main console object reference
+     * @param  commandBus A <tt>BlockingQueue</tt> from where to fetch commands
+     * @param  regMethod A <tt>MultiKeyMap</tt> which associate each <tt>Command</tt> to a method
+     * @param  watchdog The <tt>Watchdog</tt> timing every command run or <tt>null</tt> not to time them
+     **/
+    public CommandProcessor(Logger log,
+                            Console console,
+                            BlockingQueue<Command> commandBus,
+                            Map<String, RegisteredMethod> regMethod,
+                            Watchdog watchdog) {
         
         this.log = log;
         this.console = console;
         this.commandBus = commandBus;
         this.regMethod = regMethod;
+        this.watchdog = watchdog;
+        
+        // Commands of the plugins isolated by the watchdog
+        this.slowLane = watchdog != null ? Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("COMMAND-SLOW")
+                                                                                                       .setDaemon(true)
+                                                                                                       .build())
+                                         : null;
         
         this.log.debug("Command processor initialized: " + this.regMethod.size() +" commands registered");
         
@@ -93,74 +125,47 @@ public class CommandProcessor implements Runnable {
         
         while (true) {
             
-            Command command = this.commandBus.peek();
-            
             try {
                 
                 if (Thread.interrupted())
                     throw new InterruptedException();
                 
-                // Check if the command actually exists
-                if (!this.regMethod.containsKey(command.getHandle())) {
-                    this.console.sayPrivate(command.getClient(), "Could not find command: " + Color.YELLOW + command.getPrefix().getChar() + Color.RED + command.getHandle());
-                    continue;
-                }
-                
-                RegisteredMethod r = this.regMethod.get(command.getHandle());
-                
-                // Checking correct client minLevel
-                if ((command.getClient().getGroup().getLevel() < r.getGroup().getLevel()) && (!command.isForce())) {
-                    this.console.sayPrivate(command.getClient(), "You have no sufficient access to " + Color.YELLOW + command.getPrefix().getChar() + Color.RED + command.getHandle());
-                    continue;
-                }
-                
-                Method method = r.getMethod();
-                Plugin plugin = r.getPlugin();
+                Command command = this.commandBus.take();
                 
-                // Discard if disabled
-                if (!plugin.isEnabled()) {
-                    this.console.sayPrivate(command.getClient(), "Could not execute command " + Color.YELLOW + command.getPrefix().getChar() + command.getHandle() + ": " + Color.RED + "plugin disabled");
-                    continue;
-                }
-                       
                 try {
                     
-                    method.invoke(plugin, command);
-        
-                } catch (InvocationTargetException | IllegalAccessException | IllegalArgumentException e) {
+                    // Check if the command actually exists
+                    if (!this.regMethod.containsKey(command.getHandle())) {
+                        this.console.sayPrivate(command.getClient(), "Could not find command: " + Color.YELLOW + command.getPrefix().getChar() + Color.RED + command.getHandle());
+                        continue;
+                    }
                     
-
-                    if (e.getCause().getClass().equals(CommandRuntimeException.class)) {
-                        
-                        // Displaying the error in the game chat
-                        this.console.sayPrivate(command.getClient(), e.getCause().getMessage());
+                    RegisteredMethod r = this.regMethod.get(command.getHandle());
+                    
+                    // Checking correct client minLevel
+                    if ((command.getClient().getGroup().getLevel() < r.getGroup().getLevel()) && (!command.isForce())) {
+                        this.console.sayPrivate(command.getClient(), "You have no sufficient access to " + Color.YELLOW + command.getPrefix().getChar() + Color.RED + command.getHandle());
                         continue;
-                        
                     }
                     
-                    if (e.getCause().getClass().equals(CommandSyntaxException.class)) {
-                
-                        // Display a little help text so the user can 
-                        // try again using the correct command syntax
-                        Usage usage = method.getAnnotation(Usage.class);
-                        this.console.sayPrivate(command.getClient(), e.getCause().getMessage());
-                        this.console.sayPrivate(command.getClient(), "Usage: " + Color.YELLOW + usage.syntax());
+                    // Discard if disabled
+                    if (!r.getPlugin().isEnabled()) {
+                        this.console.sayPrivate(command.getClient(), "Could not execute command " + Color.YELLOW + command.getPrefix().getChar() + command.getHandle() + ": " + Color.RED + "plugin disabled");
                         continue;
-                       
-                    } 
-                        
-                    // Informing the client of the Exception and log it. We'll keep processing anyway...
-                    this.console.sayPrivate(command.getClient(), "There was an " + Color.RED + "error" + Color.WHITE + " processing your command");
-                    this.log.error("[" + r.getPlugin().getClass().getSimpleName() + "] Could not process command " + command.getPrefix().getChar() + command.getHandle(), e);
-                    continue;
+                    }
+                    
+                    if (this.slowLane != null && this.watchdog.isIsolated(r.getPlugin()))
+                        this.slowLane.execute(new Execution(command, r));
+                    else
+                        this.execute(command, r);
                 
+                } catch (RconException e) {
+                    
+                    // Just log the exception since we cannot inform the client in this situation
+                    this.log.error("Could not process command " + command.getPrefix().getChar() + command.getHandle(), e);
+                    
                 }
             
-            } catch (RconException e) {
-                
-                // Just log the exception since we cannot inform the client in this situation
-                this.log.error("Could not process command " + command.getPrefix().getChar() + command.getHandle(), e);
-                
             } catch (InterruptedException e) {
                 
                 // Stop processing
@@ -170,8 +175,116 @@ public class CommandProcessor implements Runnable {
         
         }
         
+        if (this.slowLane != null)
+            this.slowLane.shutdown();
+        
         this.log.debug("Command processor stopped: "+ new DateTime().toString() );
     
     }
+    
+    
+    /**
+     * Run the handler of a <tt>Command</tt>, informing the client of any failure
+     * 
+     * @author Mathias Van Malderen, Daniele Pantaleone
+     * @param  command The <tt>Command</tt> to be executed
+     * @param  r The <tt>RegisteredMethod</tt> handling the <tt>Command</tt>
+     * @throws RconException If the client could not be informed of a failure
+     **/
+    private void execute(Command command, RegisteredMethod r) throws RconException {
+        
+        Method method = r.getMethod();
+        Plugin plugin = r.getPlugin();
+        
+        if (this.watchdog != null)
+            this.watchdog.begin(plugin, method.getName());
+        
+        try {
+            
+            method.invoke(plugin, command);
+
+        } catch (InvocationTargetException | IllegalAccessException | IllegalArgumentException e) {
+            
+
+            if (e.getCause().getClass().equals(CommandRuntimeException.class)) {
+                
+                // Displaying the error in the game chat
+                this.console.sayPrivate(command.getClient(), e.getCause().getMessage());
+                return;
+                
+            }
+            
+            if (e.getCause().getClass().equals(CommandSyntaxException.class)) {
+        
+                // Display a little help text so the user can 
+                // try again using the correct command syntax
+                Usage usage = method.getAnnotation(Usage.class);
+                this.console.sayPrivate(command.getClient(), e.getCause().getMessage());
+                this.console.sayPrivate(command.getClient(), "Usage: " + Color.YELLOW + usage.syntax());
+                return;
+               
+            } 
+                
+            // Informing the client of the Exception and log it. We'll keep processing anyway...
+            this.console.sayPrivate(command.getClient(), "There was an " + Color.RED + "error" + Color.WHITE + " processing your command");
+            this.log.error("[" + plugin.getClass().getSimpleName() + "] Could not process command " + command.getPrefix().getChar() + command.getHandle(), e);
+        
+        } finally {
+            
+            if (this.watchdog != null)
+                this.watchdog.end();
+            
+        }
+        
+    }
+    
+    
+    /**
+     * A <tt>Command</tt> run on the slow lane
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private class Execution implements Runnable {
+        
+        private final Command command;
+        private final RegisteredMethod r;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  command The <tt>Command</tt> to be executed
+         * @param  r The <tt>RegisteredMethod</tt> handling the <tt>Command</tt>
+         **/
+        public Execution(Command command, RegisteredMethod r) {
+            this.command = command;
+            this.r = r;
+        }
+        
+        
+        /**
+         * Runnable implementation<br>
+         * Run the handler of the <tt>Command</tt>
+         * 
+         * @author Daniele Pantaleone
+         **/
+        @Override
+        public void run() {
+            
+            try {
+                
+                CommandProcessor.this.execute(this.command, this.r);
+                
+            } catch (RconException e) {
+                
+                // Just log the exception since we cannot inform the client in this situation
+                CommandProcessor.this.log.error("Could not process command " + this.command.getPrefix().getChar() + this.command.getHandle(), e);
+                
+            }
+            
+        }
+        
+    }
 
 }
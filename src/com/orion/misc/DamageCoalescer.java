@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 16 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Objects;
+import com.orion.domain.Client;
+import com.orion.event.ClientDamageSummaryEvent;
+import com.orion.urt.Hitlocation;
+import com.orion.urt.Mod;
+import com.orion.utility.Configuration;
+
+/**
+ * Aggregates damage per attacker, victim, <tt>Mod</tt> and <tt>Hitlocation</tt>
+ * so that a single <tt>ClientDamageSummaryEvent</tt> is published for all the
+ * hits collected within a window. Not thread safe: meant to be fed by the parser
+ **/
+public class DamageCoalescer {
+    
+    private static final long WINDOW = 5000;
+    
+    private final long window;
+    private final Map<Key, int[]> hits = new LinkedHashMap<Key, int[]>();
+    private long start;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  config The configuration object holding the <tt>orion</tt> section
+     **/
+    public DamageCoalescer(Configuration config) {
+        this(config.getTime("orion", "damagewindow", WINDOW));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  window The maximum amount of milliseconds a hit is held before being published
+     **/
+    public DamageCoalescer(long window) {
+        this.window = window;
+    }
+    
+    
+    /**
+     * Return the maximum amount of milliseconds a hit is held before being published
+     * 
+     * @author Daniele Pantaleone
+     * @return The maximum amount of milliseconds a hit is held before being published
+     **/
+    public long getWindow() {
+        return this.window;
+    }
+    
+    
+    /**
+     * Collect a hit
+     * 
+     * @author Daniele Pantaleone
+     * @param  client The <tt>Client</tt> who performed the hit
+     * @param  victim The <tt>Client</tt> who suffered the hit
+     * @param  mod The Urban Terror <tt>Mod</tt> of the hit
+     * @param  hitlocation The <tt>Hitlocation</tt> of the hit
+     * @param  team Whether the hit has been performed on a teammate
+     **/
+    public void add(Client client, Client victim, Mod mod, Hitlocation hitlocation, boolean team) {
+        
+        if (this.hits.isEmpty())
+            this.start = System.currentTimeMillis();
+        
+        Key key = new Key(client, victim, mod, hitlocation, team);
+        int[] count = this.hits.get(key);
+        
+        if (count == null)
+            this.hits.put(key, new int[] { 1 });
+        else
+            count[0]++;
+        
+    }
+    
+    
+    /**
+     * Tell whether the collected hits have been held for the whole window
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the collected hits have to be published, <tt>false</tt> otherwise
+     **/
+    public boolean isDue() {
+        return !this.hits.isEmpty() && System.currentTimeMillis() - this.start >= this.window;
+    }
+    
+    
+    /**
+     * Return the summary of all the collected hits and start over
+     * 
+     * @author Daniele Pantaleone
+     * @return A <tt>List</tt> of <tt>ClientDamageSummaryEvent</tt>, in order of first hit
+     **/
+    public List<ClientDamageSummaryEvent> flush() {
+        
+        List<ClientDamageSummaryEvent> events = new ArrayList<ClientDamageSummaryEvent>(this.hits.size());
+        
+        for (Map.Entry<Key, int[]> entry : this.hits.entrySet()) {
+            Key key = entry.getKey();
+            events.add(new ClientDamageSummaryEvent(key.client, key.victim, key.mod, key.hitlocation, key.team, entry.getValue()[0]));
+        }
+        
+        this.hits.clear();
+        return events;
+        
+    }
+    
+    
+    /**
+     * The hits sharing the same key are aggregated together
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Key {
+        
+        private final Client client;
+        private final Client victim;
+        private final Mod mod;
+        private final Hitlocation hitlocation;
+        private final boolean team;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  client The <tt>Client</tt> who performed the hit
+         * @param  victim The <tt>Client</tt> who suffered the hit
+         * @param  mod The Urban Terror <tt>Mod</tt> of the hit
+         * @param  hitlocation The <tt>Hitlocation</tt> of the hit
+         * @param  team Whether the hit has been performed on a teammate
+         **/
+        public Key(Client client, Client victim, Mod mod, Hitlocation hitlocation, boolean team) {
+            this.client = client;
+            this.victim = victim;
+            this.mod = mod;
+            this.hitlocation = hitlocation;
+            this.team = team;
+        }
+        
+        
+        /**
+         * Return the hash code of the key
+         * 
+         * @author Daniele Pantaleone
+         * @return The hash code of the key
+         **/
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.client, this.victim, this.mod, this.hitlocation, this.team);
+        }
+        
+        
+        /**
+         * Tell whether the given object is an equal key
+         * 
+         * @author Daniele Pantaleone
+         * @param  object The object to be compared
+         * @return <tt>true</tt> if the given object is an equal key, <tt>false</tt> otherwise
+         **/
+        @Override
+        public boolean equals(Object object) {
+            
+            if (!(object instanceof Key))
+                return false;
+            
+            Key key = (Key) object;
+            return this.client == key.client && this.victim == key.victim && this.mod == key.mod && 
+                   this.hitlocation == key.hitlocation && this.team == key.team;
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 12 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.orion.annotation.Timeout;
+import com.orion.event.Event;
+import com.orion.exception.EventInterruptedException;
+import com.orion.plugin.Plugin;
+
+public class EventInvoker {
+    
+    public static final MethodType TYPE = MethodType.methodType(void.class, Event.class);
+    public static final MethodType ASYNC = MethodType.methodType(ListenableFuture.class, Event.class);
+    
+    private final Plugin plugin;
+    private final String name;
+    private final MethodHandle handle;
+    private final boolean interrupting;
+    private final boolean async;
+    private final long timeout;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  method The <tt>RegisteredMethod</tt> handling the event
+     * @throws IllegalAccessException If the handling <tt>Method</tt> is not accessible
+     **/
+    public EventInvoker(RegisteredMethod method) throws IllegalAccessException {
+        
+        this.plugin = method.getPlugin();
+        this.name = method.getMethod().getName();
+        this.async = ListenableFuture.class.isAssignableFrom(method.getMethod().getReturnType());
+        
+        // bound once to its plugin and adapted to a (Event)void signature
+        // so that the processor can call it with invokeExact: the event is 
+        // cast to the declared parameter type and any return value dropped.
+        // Asynchronous handlers keep returning their ListenableFuture
+        this.handle = MethodHandles.lookup().unreflect(method.getMethod())
+                                            .bindTo(this.plugin)
+                                            .asType(this.async ? ASYNC : TYPE);
+        
+        boolean interrupting = false;
+        for (Class<?> type : method.getMethod().getExceptionTypes())
+            interrupting |= type.isAssignableFrom(EventInterruptedException.class);
+        
+        this.interrupting = interrupting;
+        
+        Timeout timeout = method.getMethod().getAnnotation(Timeout.class);
+        this.timeout = timeout != null ? timeout.unit().toMillis(timeout.value()) : -1;
+        
+    }
+    
+    
+    /**
+     * Return the <tt>Plugin</tt> handling the event
+     * 
+     * @author Daniele Pantaleone
+     * @return The <tt>Plugin</tt> handling the event
+     **/
+    public Plugin getPlugin() {
+        return this.plugin;
+    }
+    
+    
+    /**
+     * Return the name of the <tt>Method</tt> handling the event
+     * 
+     * @author Daniele Pantaleone
+     * @return The name of the <tt>Method</tt> handling the event
+     **/
+    public String getName() {
+        return this.name;
+    }
+    
+    
+    /**
+     * Tell whether the handler declares to throw <tt>EventInterruptedException</tt>,
+     * thus being able to stop the processing of the event by the remaining handlers
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the handler may interrupt the event processing, <tt>false</tt> otherwise
+     **/
+    public boolean isInterrupting() {
+        return this.interrupting;
+    }
+    
+    
+    /**
+     * Tell whether the handler returns a <tt>ListenableFuture</tt> 
+     * completing when the handling of the event is over
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the handler is asynchronous, <tt>false</tt> otherwise
+     **/
+    public boolean isAsync() {
+        return this.async;
+    }
+    
+    
+    /**
+     * Return the time the handler is given to complete
+     * its <tt>ListenableFuture</tt>, as declared by its <tt>Timeout</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @return The timeout in milliseconds or <tt>-1</tt> if the handler doesn't declare any
+     **/
+    public long getTimeout() {
+        return this.timeout;
+    }
+    
+    
+    /**
+     * Invoke the handler on the given <tt>Event</tt>.
+     * Exceptions thrown by the handler are not wrapped
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be handled
+     * @return The <tt>ListenableFuture</tt> returned by an asynchronous handler or <tt>null</tt>
+     *         if the handler is synchronous and the <tt>Event</tt> has already been handled
+     * @throws Throwable Whatever the handler has thrown
+     **/
+    public ListenableFuture<?> invoke(Event event) throws Throwable {
+        
+        if (this.async)
+            return (ListenableFuture<?>) this.handle.invokeExact(event);
+        
+        this.handle.invokeExact(event);
+        return null;
+        
+    }
+    
+}
@@ -25,18 +25,45 @@
  * @package     com.orion.misc
  **/
 
+
 package com.orion.misc;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Collection;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joda.time.DateTime;
 
 import org.slf4j.Logger;
 
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.orion.domain.Client;
 import com.orion.event.Event;
 import com.orion.exception.EventInterruptedException;
 import com.orion.misc.RegisteredMethod;
@@ -44,9 +71,43 @@ import com.orion.plugin.Plugin;
 
 public class EventProcessor implements Runnable {
     
+    private static final long POLL_INTERVAL = 10;
+    
+    private static final ListenableFuture<Boolean> STOP = Futures.immediateFuture(true);
+    private static final ListenableFuture<Boolean> CONTINUE = Futures.immediateFuture(false);
+    
+    private static final FutureFallback<Boolean> PROCEED = new FutureFallback<Boolean>() {
+        
+        public ListenableFuture<Boolean> create(Throwable t) {
+            return CONTINUE;
+        }
+        
+    };
+    
     private final Logger log;
     private BlockingQueue<Event> eventBus;
     private Multimap<Class<?>, RegisteredMethod> regMethod;
+    private final Map<Class<?>, Route> routes = new ConcurrentHashMap<Class<?>, Route>();
+    private final Map<Plugin, ListeningExecutorService[]> lanes = new ConcurrentHashMap<Plugin, ListeningExecutorService[]>();
+    private final int threads;
+    private final long timeout;
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Watchdog watchdog;
+    private final ListeningExecutorService slowLane;
+    
+    // touched by the event processor thread only
+    private final Map<Integer, ListenableFuture<Boolean>> barriers = new HashMap<Integer, ListenableFuture<Boolean>>();
+    private final Queue<Runnable> continuations = new ConcurrentLinkedQueue<Runnable>();
+    private int waiting;
+    
+    private final Executor sequencer = new Executor() {
+        
+        public void execute(Runnable command) {
+            EventProcessor.this.continuations.add(command);
+        }
+        
+    };
     
     
     /**
@@ -60,21 +121,120 @@ public class EventProcessor implements Runnable {
     public EventProcessor(Logger log, 
                           BlockingQueue<Event> eventBus, 
                           Multimap<Class<?>, RegisteredMethod> regMethod) {
+        this(log, eventBus, regMethod, 0);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  eventBus A <tt>BlockingQueue</tt> from where to fetch events
+     * @param  regMethod A <tt>Multimap</tt> which associate each <tt>Event</tt> to a method
+     * @param  threads The number of threads of every plugin lane or <tt>0</tt> 
+     *                 to run all the handlers on the event processor thread
+     **/
+    public EventProcessor(Logger log, 
+                          BlockingQueue<Event> eventBus, 
+                          Multimap<Class<?>, RegisteredMethod> regMethod,
+                          int threads) {
+        this(log, eventBus, regMethod, threads, 0);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  eventBus A <tt>BlockingQueue</tt> from where to fetch events
+     * @param  regMethod A <tt>Multimap</tt> which associate each <tt>Event</tt> to a method
+     * @param  threads The number of threads of every plugin lane or <tt>0</tt> 
+     *                 to run all the handlers on the event processor thread
+     * @param  timeout The number of milliseconds asynchronous handlers are given to complete 
+     *                 when they don't declare a <tt>Timeout</tt> or <tt>0</tt> to wait forever
+     **/
+    public EventProcessor(Logger log, 
+                          BlockingQueue<Event> eventBus, 
+                          Multimap<Class<?>, RegisteredMethod> regMethod,
+                          int threads,
+                          long timeout) {
+        this(log, eventBus, regMethod, threads, timeout, null);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  eventBus A <tt>BlockingQueue</tt> from where to fetch events
+     * @param  regMethod A <tt>Multimap</tt> which associate each <tt>Event</tt> to a method
+     * @param  threads The number of threads of every plugin lane or <tt>0</tt> 
+     *                 to run all the handlers on the event processor thread
+     * @param  timeout The number of milliseconds asynchronous handlers are given to complete 
+     *                 when they don't declare a <tt>Timeout</tt> or <tt>0</tt> to wait forever
+     * @param  watchdog The <tt>Watchdog</tt> timing every handler run or <tt>null</tt> not to time them
+     **/
+    public EventProcessor(Logger log, 
+                          BlockingQueue<Event> eventBus, 
+                          Multimap<Class<?>, RegisteredMethod> regMethod,
+                          int threads,
+                          long timeout,
+                          Watchdog watchdog) {
         
         this.log = log;
         this.eventBus = eventBus;
         this.regMethod = regMethod;
+        this.threads = Math.max(0, threads);
+        this.timeout = Math.max(0, timeout);
+        
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("EVENT-TIMEOUT")
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+        this.timer.setRemoveOnCancelPolicy(true);
+        
+        // With plugin lanes every plugin already runs on its own threads:
+        // otherwise the plugins isolated by the watchdog share a slow lane
+        this.watchdog = watchdog;
+        this.slowLane = watchdog != null && this.threads == 0 ? MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("EVENT-SLOW")
+                                                                                                                                                            .setDaemon(true)
+                                                                                                                                                            .build()))
+                                                              : null;
         
-        this.log.debug("Event processor initialized: " + this.regMethod.size() + " events registered");
+        this.log.debug("Event processor initialized: " + this.regMethod.size() + " events registered, " + this.threads + " threads per plugin, " + this.timeout + "ms handler timeout");
         
     }
     
     
+    /**
+     * Drop the invokers built so far: they will be built again 
+     * from the registered methods when the next event comes in
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void refresh() {
+        this.routes.clear();
+    }
+    
+    
+    /**
+     * Return the number of asynchronous handlers which didn't complete yet
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of asynchronous handlers which didn't complete yet
+     **/
+    public int getPending() {
+        return this.pending.get();
+    }
+    
+    
     /**
      * Runnable implementation<br>
      * Will iterate throught all the events stored by the parser in the queue
      * It peeks an <tt>Event</tt> from the queue and process it over all
-     * the mapped <tt>Methods</tt> retrieved from the registered events map
+     * the invokers built from the registered methods
      * 
      * @author Daniele Pantaleone
      **/
@@ -92,44 +252,21 @@ public class EventProcessor implements Runnable {
                 if (Thread.interrupted())
                     throw new InterruptedException();
                 
-                Event event = this.eventBus.take();
-                Collection<RegisteredMethod> collection = this.regMethod.get(event.getClass());
-                
-                // Skip if this event is not mapped over any method
-                if ((collection == null) || (collection.size() == 0)) {
-                    continue;
+                // Resuming the events whose handlers were
+                // waiting for an asynchronous handler to complete
+                Runnable continuation;
+                while ((continuation = this.continuations.poll()) != null) {
+                    this.waiting--;
+                    continuation.run();
                 }
                 
-                // Iterating over all the RegisteredEvent
-                for (RegisteredMethod r : collection) {
-                    
-                    try {
-                        
-                        Method method = r.getMethod();
-                        Plugin plugin = r.getPlugin();
-                        
-                        if (!plugin.isEnabled()) {
-                            continue;
-                        }
-                        
-                        method.invoke(plugin, event);
-                    
-                    } catch (InvocationTargetException | IllegalAccessException | IllegalArgumentException e) {
-                        
-                        // A plugin requested to stop processing this event so
-                        // we'll not iterate through the remaining event handlers
-                        if (e.getCause().getClass().equals(EventInterruptedException.class)) {
-                            continue;
-                        }
-                        
-                        // Logging the Exception and keep processing events anyway
-                        this.log.error("[" + r.getPlugin().getClass().getSimpleName() + "] Could not process event " + event.getClass().getSimpleName(), e);
-                        continue;
-                        
-                    }
-                    
-                }
-                    
+                // Can't sleep on the queue while continuations 
+                // are due: nothing would wake the thread up to run them
+                Event event = this.waiting == 0 ? this.eventBus.take() 
+                                                : this.eventBus.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                
+                if (event != null)
+                    this.handle(event);
     
             } catch (InterruptedException e) {
                 
@@ -141,8 +278,441 @@ public class EventProcessor implements Runnable {
         
         }
         
+        // letting the plugin lanes complete
+        // the events they already received
+        for (ListeningExecutorService[] executors : this.lanes.values())
+            for (ListeningExecutorService executor : executors)
+                executor.shutdown();
+        
+        if (this.slowLane != null)
+            this.slowLane.shutdown();
+        
+        this.timer.shutdownNow();
         this.log.debug("Event processor stopped: " + new DateTime().toString());
     
     }
+    
+    
+    /**
+     * Run the handlers of an <tt>Event</tt>. Events of a client are held back
+     * while a previous event of the same client is waiting for an asynchronous 
+     * handler able to stop its propagation, so that plugins always see the 
+     * events of a client in order. Events of other clients keep flowing
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be processed
+     **/
+    private void handle(final Event event) {
+        
+        final Route route = this.getRoute(event.getClass());
+        final int slot = route.getSlot(event);
+        
+        ListenableFuture<Boolean> barrier = this.barriers.get(slot);
+        ListenableFuture<Boolean> result;
+        
+        if (barrier == null || barrier.isDone()) {
+            
+            result = this.proceed(event, route, slot, 0);
+            
+        } else {
+            
+            result = this.then(barrier, new AsyncFunction<Boolean, Boolean>() {
+                
+                public ListenableFuture<Boolean> apply(Boolean interrupted) {
+                    return EventProcessor.this.proceed(event, route, slot, 0);
+                }
+                
+            });
+            
+        }
+        
+        if (result.isDone())
+            this.barriers.remove(slot);
+        else
+            this.barriers.put(slot, result);
+        
+    }
+    
+    
+    /**
+     * Run the handlers of an <tt>Event</tt> starting from the given one.
+     * Without plugin lanes handlers run on the event processor thread in
+     * registration order, otherwise they are handed to the lanes of their
+     * plugins with the handlers able to stop the event propagation going first.
+     * When such a handler is still running (on a lane or asynchronously) the 
+     * processor doesn't wait for it: the remaining handlers are given the 
+     * <tt>Event</tt> once it completes, if it didn't interrupt the propagation.
+     * Other handlers are never waited for
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be processed
+     * @param  route The <tt>Route</tt> of the <tt>Event</tt> class
+     * @param  slot The slot of the <tt>Client</tt> the <tt>Event</tt> refers to or <tt>-1</tt> if none
+     * @param  from The index of the first handler to run
+     * @return A <tt>ListenableFuture</tt> telling whether the event propagation has been interrupted
+     **/
+    private ListenableFuture<Boolean> proceed(final Event event, final Route route, final int slot, int from) {
+        
+        EventInvoker[] invokers = this.threads == 0 ? route.invokers : route.staged;
+        
+        for (int i = from; i < invokers.length; i++) {
+            
+            EventInvoker invoker = invokers[i];
+            
+            if (!invoker.getPlugin().isEnabled()) {
+                continue;
+            }
+            
+            ListenableFuture<Boolean> result;
+            
+            if (this.threads != 0)
+                result = this.submit(invoker, event, slot);
+            else if (this.slowLane != null && this.watchdog.isIsolated(invoker.getPlugin()))
+                result = this.isolate(invoker, event);
+            else
+                result = this.invoke(invoker, event);
+            
+            if (!invoker.isInterrupting()) {
+                continue;
+            }
+            
+            if (!result.isDone()) {
+                
+                final int next = i + 1;
+                
+                return this.then(result, new AsyncFunction<Boolean, Boolean>() {
+                    
+                    public ListenableFuture<Boolean> apply(Boolean interrupted) {
+                        return interrupted ? STOP : EventProcessor.this.proceed(event, route, slot, next);
+                    }
+                    
+                });
+                
+            }
+            
+            // A plugin requested to stop processing this event so
+            // we'll not iterate through the remaining event handlers
+            if (Futures.getUnchecked(result))
+                return STOP;
+            
+        }
+        
+        return CONTINUE;
+        
+    }
+    
+    
+    /**
+     * Schedule a continuation on the event processor thread, to be run once 
+     * the given <tt>ListenableFuture</tt> completes. A failed or cancelled 
+     * <tt>ListenableFuture</tt> doesn't stop the event propagation
+     * 
+     * @author Daniele Pantaleone
+     * @param  future The <tt>ListenableFuture</tt> to be waited for
+     * @param  continuation The continuation to be run
+     * @return A <tt>ListenableFuture</tt> telling whether the event propagation has been interrupted
+     **/
+    private ListenableFuture<Boolean> then(ListenableFuture<Boolean> future, AsyncFunction<Boolean, Boolean> continuation) {
+        this.waiting++;
+        return Futures.transform(Futures.withFallback(future, PROCEED), continuation, this.sequencer);
+    }
+    
+    
+    /**
+     * Run a handler in the lane of its plugin matching the given slot
+     * 
+     * @author Daniele Pantaleone
+     * @param  invoker The <tt>EventInvoker</tt> to be run
+     * @param  event The <tt>Event</tt> to be handled
+     * @param  slot The slot of the <tt>Client</tt> the <tt>Event</tt> refers to or <tt>-1</tt> if none
+     * @return A <tt>ListenableFuture</tt> telling whether the handler interrupted the event processing
+     **/
+    private ListenableFuture<Boolean> submit(final EventInvoker invoker, final Event event, int slot) {
+        
+        ListeningExecutorService[] executors = this.lanes.get(invoker.getPlugin());
+        
+        if (executors == null) {
+            
+            synchronized (this.lanes) {
+                
+                executors = this.lanes.get(invoker.getPlugin());
+                
+                if (executors == null) {
+                    
+                    String name = invoker.getPlugin().getClass().getSimpleName().toUpperCase();
+                    executors = new ListeningExecutorService[this.threads];
+                    
+                    for (int i = 0; i < executors.length; i++)
+                        executors[i] = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(name + "-" + i)
+                                                                                                                                    .setDaemon(true)
+                                                                                                                                    .build()));
+                    
+                    this.lanes.put(invoker.getPlugin(), executors);
+                    
+                }
+                
+            }
+            
+        }
+        
+        return Futures.dereference(executors[Math.max(0, slot) % executors.length].submit(new Callable<ListenableFuture<Boolean>>() {
+            
+            public ListenableFuture<Boolean> call() {
+                return EventProcessor.this.invoke(invoker, event);
+            }
+            
+        }));
+        
+    }
+    
+    
+    /**
+     * Run a handler of a <tt>Plugin</tt> isolated by the watchdog on the slow lane
+     * 
+     * @author Daniele Pantaleone
+     * @param  invoker The <tt>EventInvoker</tt> to be run
+     * @param  event The <tt>Event</tt> to be handled
+     * @return A <tt>ListenableFuture</tt> telling whether the handler interrupted the event processing
+     **/
+    private ListenableFuture<Boolean> isolate(final EventInvoker invoker, final Event event) {
+        
+        return Futures.dereference(this.slowLane.submit(new Callable<ListenableFuture<Boolean>>() {
+            
+            public ListenableFuture<Boolean> call() {
+                return EventProcessor.this.invoke(invoker, event);
+            }
+            
+        }));
+        
+    }
+    
+    
+    /**
+     * Invoke a handler on the given <tt>Event</tt>, logging any failure
+     * 
+     * @author Daniele Pantaleone
+     * @param  invoker The <tt>EventInvoker</tt> to be run
+     * @param  event The <tt>Event</tt> to be handled
+     * @return A <tt>ListenableFuture</tt> telling whether the handler interrupted the event processing
+     **/
+    private ListenableFuture<Boolean> invoke(EventInvoker invoker, Event event) {
+        
+        if (this.watchdog != null)
+            this.watchdog.begin(invoker.getPlugin(), invoker.getName());
+        
+        try {
+            
+            ListenableFuture<?> future = invoker.invoke(event);
+            return future != null ? this.track(invoker, event, future) : CONTINUE;
+        
+        } catch (EventInterruptedException e) {
+            
+            return STOP;
+            
+        } catch (Throwable e) {
+            
+            // Logging the Exception and keep processing events anyway
+            this.log.error("[" + invoker.getPlugin().getClass().getSimpleName() + "] Could not process event " + event.getClass().getSimpleName(), e);
+            return CONTINUE;
+            
+        } finally {
+            
+            if (this.watchdog != null)
+                this.watchdog.end();
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Keep track of the <tt>ListenableFuture</tt> returned by an asynchronous handler,
+     * cancelling it if it doesn't complete within the handler timeout. The handler
+     * interrupts the event processing by failing with an <tt>EventInterruptedException</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  invoker The <tt>EventInvoker</tt> which returned the <tt>ListenableFuture</tt>
+     * @param  event The <tt>Event</tt> being handled
+     * @param  future The <tt>ListenableFuture</tt> returned by the handler
+     * @return A <tt>ListenableFuture</tt> telling whether the handler interrupted the event processing
+     **/
+    private ListenableFuture<Boolean> track(final EventInvoker invoker, final Event event, final ListenableFuture<?> future) {
+        
+        final SettableFuture<Boolean> result = SettableFuture.create();
+        final long timeout = invoker.getTimeout() >= 0 ? invoker.getTimeout() : this.timeout;
+        final ScheduledFuture<?> expiry;
+        
+        if (timeout > 0 && !future.isDone()) {
+            
+            expiry = this.timer.schedule(new Runnable() {
+                
+                public void run() {
+                    if (future.cancel(true))
+                        EventProcessor.this.log.warn("[" + invoker.getPlugin().getClass().getSimpleName() + "] Handler " + invoker.getName() + " did not process event " + event.getClass().getSimpleName() + " within " + timeout + "ms: cancelled");
+                }
+                
+            }, timeout, TimeUnit.MILLISECONDS);
+            
+        } else {
+            
+            expiry = null;
+            
+        }
+        
+        this.pending.incrementAndGet();
+        
+        future.addListener(new Runnable() {
+            
+            public void run() {
+                
+                boolean interrupted = false;
+                
+                try {
+                    
+                    Uninterruptibles.getUninterruptibly(future);
+                    
+                } catch (ExecutionException e) {
+                    
+                    if (e.getCause() instanceof EventInterruptedException)
+                        interrupted = true;
+                    else
+                        EventProcessor.this.log.error("[" + invoker.getPlugin().getClass().getSimpleName() + "] Could not process event " + event.getClass().getSimpleName(), e.getCause());
+                    
+                } catch (CancellationException e) {
+                    // timed out or cancelled by the plugin
+                }
+                
+                if (expiry != null)
+                    expiry.cancel(false);
+                
+                EventProcessor.this.pending.decrementAndGet();
+                result.set(interrupted);
+                
+            }
+            
+        }, MoreExecutors.sameThreadExecutor());
+        
+        return result;
+        
+    }
+    
+    
+    /**
+     * Return the <tt>Route</tt> of the given <tt>Event</tt> class, building
+     * it from the registered methods the first time the class is seen
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>Event</tt> class
+     * @return The <tt>Route</tt> of the given <tt>Event</tt> class
+     **/
+    private Route getRoute(Class<?> type) {
+        
+        Route route = this.routes.get(type);
+        if (route != null)
+            return route;
+        
+        List<EventInvoker> list = new ArrayList<EventInvoker>();
+        
+        for (RegisteredMethod r : this.regMethod.get(type)) {
+            
+            try {
+                
+                list.add(new EventInvoker(r));
+                
+            } catch (IllegalAccessException | RuntimeException e) {
+                
+                // Logging the Exception: the method will never be invoked
+                this.log.error("[" + r.getPlugin().getClass().getSimpleName() + "] Could not bind method " + r.getMethod().getName() + " to event " + type.getSimpleName(), e);
+                
+            }
+            
+        }
+        
+        route = new Route(type, list);
+        this.routes.put(type, route);
+        return route;
+        
+    }
+    
+    
+    /**
+     * The handlers of an <tt>Event</tt> class along with
+     * the way to find the <tt>Client</tt> it refers to
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Route {
+        
+        private static final MethodType CLIENT = MethodType.methodType(Client.class);
+        
+        private final EventInvoker[] invokers;
+        private final EventInvoker[] staged;
+        private final MethodHandle client;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  type The <tt>Event</tt> class
+         * @param  invokers The handlers of the <tt>Event</tt> class, in registration order
+         **/
+        public Route(Class<?> type, List<EventInvoker> invokers) {
+            
+            // handlers able to stop the event
+            // propagation first, then the others
+            List<EventInvoker> staged = new ArrayList<EventInvoker>();
+            
+            for (EventInvoker invoker : invokers)
+                if (invoker.isInterrupting())
+                    staged.add(invoker);
+            
+            for (EventInvoker invoker : invokers)
+                if (!invoker.isInterrupting())
+                    staged.add(invoker);
+            
+            this.invokers = invokers.toArray(new EventInvoker[invokers.size()]);
+            this.staged = staged.toArray(new EventInvoker[staged.size()]);
+            
+            MethodHandle client = null;
+            
+            try {
+                
+                client = MethodHandles.publicLookup().findVirtual(type, "getClient", CLIENT)
+                                                     .asType(MethodType.methodType(Client.class, Event.class));
+                
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // not bound to any client: first lane
+            }
+            
+            this.client = client;
+            
+        }
+        
+        
+        /**
+         * Return the slot of the <tt>Client</tt> the given <tt>Event</tt> refers to
+         * 
+         * @author Daniele Pantaleone
+         * @param  event The <tt>Event</tt>
+         * @return The slot of the <tt>Client</tt> or <tt>-1</tt> if the <tt>Event</tt> doesn't refer to a <tt>Client</tt>
+         **/
+        public int getSlot(Event event) {
+            
+            if (this.client == null)
+                return -1;
+            
+            try {
+                
+                Client client = (Client) this.client.invokeExact(event);
+                return client != null && client.getSlot() != null ? client.getSlot() : -1;
+                
+            } catch (Throwable e) {
+                return -1;
+            }
+            
+        }
+        
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,612 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 10 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+
+import com.orion.event.Event;
+import com.orion.utility.Configuration;
+
+/**
+ * Preallocated ring of <tt>Event</tt> slots. Producers claim a sequence number, fill 
+ * the matching slot and publish it: nothing is allocated and no lock is taken on the way.
+ * Every <tt>Consumer</tt> tracks its own sequence and sees all the published events: a
+ * producer waits only when the slot it claims has not been read by every consumer yet.
+ * The ring itself is a <tt>BlockingQueue</tt> read by its primary consumer so it can 
+ * replace the event queue shared by the parser and the <tt>EventProcessor</tt>
+ **/
+public class EventRing extends AbstractQueue<Event> implements BlockingQueue<Event> {
+    
+    private static final int SIZE = 1024;
+    
+    private final Logger log;
+    private final Event[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final WaitStrategy strategy;
+    
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<Consumer>();
+    private final Consumer primary;
+    
+    private volatile long gate = -1;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  config The configuration object holding the <tt>orion</tt> section
+     **/
+    public EventRing(Logger log, Configuration config) {
+        this(log, config.getInt("orion", "eventqueue", SIZE), 
+                  WaitStrategy.valueOf(config.getString("orion", "eventwait", WaitStrategy.PARK.name()).toUpperCase()));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  size The number of event slots, rounded up to the next power of two
+     * @param  strategy The <tt>WaitStrategy</tt> of producers and consumers
+     **/
+    public EventRing(Logger log, int size, WaitStrategy strategy) {
+        
+        int capacity = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+        
+        this.log = log;
+        this.slots = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.strategy = strategy;
+        
+        // no slot has been published yet: sequence 0 must
+        // not match the initial value of its availability flag
+        for (int i = 0; i < capacity; i++)
+            this.published.set(i, -1);
+        
+        this.primary = this.newConsumer();
+        this.log.debug("Event ring initialized [ slots : " + capacity + " | wait : " + strategy.name() + " ]");
+        
+    }
+    
+    
+    /**
+     * Register a new <tt>Consumer</tt>. The consumer sees the events published 
+     * from now on, but only after all the given consumers have processed them
+     * 
+     * @author Daniele Pantaleone
+     * @param  dependencies The consumers which have to process an event first
+     * @return A new <tt>Consumer</tt> of the ring
+     **/
+    public Consumer newConsumer(Consumer... dependencies) {
+        Consumer consumer = new Consumer(this.claimed.get(), dependencies);
+        this.consumers.add(consumer);
+        return consumer;
+    }
+    
+    
+    /**
+     * Return the primary <tt>Consumer</tt> of the ring,
+     * used by the <tt>BlockingQueue</tt> methods
+     * 
+     * @author Daniele Pantaleone
+     * @return The primary <tt>Consumer</tt> of the ring
+     **/
+    public Consumer getPrimary() {
+        return this.primary;
+    }
+    
+    
+    /**
+     * Return the <tt>WaitStrategy</tt> of producers and consumers
+     * 
+     * @author Daniele Pantaleone
+     * @return The <tt>WaitStrategy</tt> of producers and consumers
+     **/
+    public WaitStrategy getWaitStrategy() {
+        return this.strategy;
+    }
+    
+    
+    /**
+     * Publish an <tt>Event</tt>, waiting for a free slot if necessary
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be published
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     **/
+    public void put(Event event) throws InterruptedException {
+        checkNotNull(event);
+        this.publish(this.claim(Long.MAX_VALUE), event);
+    }
+    
+    
+    /**
+     * Publish an <tt>Event</tt> if a slot is free
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be published
+     * @return <tt>true</tt> if the <tt>Event</tt> has been published, <tt>false</tt> otherwise
+     **/
+    public boolean offer(Event event) {
+        
+        checkNotNull(event);
+        
+        try {
+            
+            long sequence = this.claim(0);
+            if (sequence == -1)
+                return false;
+            
+            this.publish(sequence, event);
+            return true;
+            
+        } catch (InterruptedException e) {
+            
+            // we didn't wait at all: keeping
+            // the signal for the caller
+            Thread.currentThread().interrupt();
+            return false;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Publish an <tt>Event</tt>, waiting up to the given time for a free slot
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be published
+     * @param  timeout The maximum amount of time to wait
+     * @param  unit The <tt>TimeUnit</tt> of the timeout
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return <tt>true</tt> if the <tt>Event</tt> has been published, <tt>false</tt> otherwise
+     **/
+    public boolean offer(Event event, long timeout, TimeUnit unit) throws InterruptedException {
+        
+        checkNotNull(event);
+        
+        long sequence = this.claim(unit.toNanos(timeout));
+        if (sequence == -1)
+            return false;
+        
+        this.publish(sequence, event);
+        return true;
+        
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the primary consumer, waiting if necessary
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return The next <tt>Event</tt>
+     **/
+    public Event take() throws InterruptedException {
+        return this.primary.take();
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the primary consumer if available
+     * 
+     * @author Daniele Pantaleone
+     * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+     **/
+    public Event poll() {
+        return this.primary.poll();
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the primary consumer, 
+     * waiting up to the given time if necessary
+     * 
+     * @author Daniele Pantaleone
+     * @param  timeout The maximum amount of time to wait
+     * @param  unit The <tt>TimeUnit</tt> of the timeout
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return The next <tt>Event</tt> or <tt>null</tt> if the time elapsed
+     **/
+    public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.primary.poll(timeout, unit);
+    }
+    
+    
+    /**
+     * Return the next <tt>Event</tt> of the primary consumer without retrieving it
+     * 
+     * @author Daniele Pantaleone
+     * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+     **/
+    public Event peek() {
+        return this.primary.peek();
+    }
+    
+    
+    /**
+     * Retrieve all the available events of the primary consumer
+     * 
+     * @author Daniele Pantaleone
+     * @param  collection The <tt>Collection</tt> where to add the events
+     * @return The number of events retrieved
+     **/
+    public int drainTo(Collection<? super Event> collection) {
+        return this.primary.drainTo(collection, Integer.MAX_VALUE);
+    }
+    
+    
+    /**
+     * Retrieve up to the given number of available events of the primary consumer
+     * 
+     * @author Daniele Pantaleone
+     * @param  collection The <tt>Collection</tt> where to add the events
+     * @param  max The maximum number of events to retrieve
+     * @return The number of events retrieved
+     **/
+    public int drainTo(Collection<? super Event> collection, int max) {
+        return this.primary.drainTo(collection, max);
+    }
+    
+    
+    /**
+     * Return the number of events not yet retrieved by the primary consumer
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of events not yet retrieved by the primary consumer
+     **/
+    public int size() {
+        return (int) Math.max(0, this.claimed.get() - this.primary.sequence.get());
+    }
+    
+    
+    /**
+     * Return the number of events which can be published without waiting
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of events which can be published without waiting
+     **/
+    public int remainingCapacity() {
+        return (int) Math.max(0, this.slots.length - (this.claimed.get() - this.getMinimumSequence()));
+    }
+    
+    
+    /**
+     * Return an <tt>Iterator</tt> over a snapshot of the
+     * events not yet retrieved by the primary consumer
+     * 
+     * @author Daniele Pantaleone
+     * @return An <tt>Iterator</tt> over the pending events
+     **/
+    public Iterator<Event> iterator() {
+        
+        List<Event> pending = new ArrayList<Event>();
+        
+        for (long sequence = this.primary.sequence.get() + 1; this.isPublished(sequence); sequence++) {
+            
+            Event event = this.slots[(int) sequence & this.mask];
+            
+            // overwritten while we were looking
+            if (!this.isPublished(sequence))
+                break;
+            
+            pending.add(event);
+            
+        }
+        
+        return Collections.unmodifiableList(pending).iterator();
+        
+    }
+    
+    
+    /**
+     * Claim the next sequence number, waiting until its slot has been read by every consumer
+     * 
+     * @author Daniele Pantaleone
+     * @param  timeout The maximum amount of nanoseconds to wait or <tt>Long.MAX_VALUE</tt> to wait forever
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return The claimed sequence number or <tt>-1</tt> if the time elapsed
+     **/
+    private long claim(long timeout) throws InterruptedException {
+        
+        long deadline = timeout == Long.MAX_VALUE ? 0 : System.nanoTime() + timeout;
+        
+        while (true) {
+            
+            long current = this.claimed.get();
+            long next = current + 1;
+            long wrap = next - this.slots.length;
+            
+            // nothing is claimed until the slot is free: a producer giving up
+            // here never leaves behind a sequence which will not be published
+            if (wrap > this.gate) {
+                
+                this.gate = this.getMinimumSequence();
+                
+                if (wrap > this.gate) {
+                    
+                    if (timeout != Long.MAX_VALUE && System.nanoTime() - deadline >= 0)
+                        return -1;
+                    
+                    this.strategy.await();
+                    continue;
+                    
+                }
+                
+            }
+            
+            if (this.claimed.compareAndSet(current, next))
+                return next;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Fill the slot of a claimed sequence number and make it visible to the consumers
+     * 
+     * @author Daniele Pantaleone
+     * @param  sequence The claimed sequence number
+     * @param  event The <tt>Event</tt> to be published
+     **/
+    private void publish(long sequence, Event event) {
+        int index = (int) sequence & this.mask;
+        this.slots[index] = event;
+        this.published.set(index, sequence);
+    }
+    
+    
+    /**
+     * Tell whether the given sequence number has been published
+     * 
+     * @author Daniele Pantaleone
+     * @param  sequence The sequence number
+     * @return <tt>true</tt> if the sequence number has been published, <tt>false</tt> otherwise
+     **/
+    private boolean isPublished(long sequence) {
+        return this.published.get((int) sequence & this.mask) == sequence;
+    }
+    
+    
+    /**
+     * Return the lowest sequence number processed by the consumers
+     * 
+     * @author Daniele Pantaleone
+     * @return The lowest sequence number processed by the consumers
+     **/
+    private long getMinimumSequence() {
+        
+        long minimum = this.claimed.get();
+        
+        for (Consumer consumer : this.consumers)
+            minimum = Math.min(minimum, consumer.sequence.get());
+        
+        return minimum;
+        
+    }
+    
+    
+    /**
+     * An independent reader of the ring. Each consumer must be used by a single thread
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public class Consumer {
+        
+        private final AtomicLong sequence;
+        private final Consumer[] dependencies;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  sequence The sequence number preceding the first event to be processed
+         * @param  dependencies The consumers which have to process an event first
+         **/
+        private Consumer(long sequence, Consumer[] dependencies) {
+            this.sequence = new AtomicLong(sequence);
+            this.dependencies = dependencies;
+        }
+        
+        
+        /**
+         * Return the sequence number of the last processed <tt>Event</tt>
+         * 
+         * @author Daniele Pantaleone
+         * @return The sequence number of the last processed <tt>Event</tt>
+         **/
+        public long getSequence() {
+            return this.sequence.get();
+        }
+        
+        
+        /**
+         * Retrieve the next <tt>Event</tt>, waiting if necessary
+         * 
+         * @author Daniele Pantaleone
+         * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+         * @return The next <tt>Event</tt>
+         **/
+        public Event take() throws InterruptedException {
+            
+            long next = this.sequence.get() + 1;
+            
+            while (!this.isAvailable(next))
+                EventRing.this.strategy.await();
+            
+            return this.consume(next);
+            
+        }
+        
+        
+        /**
+         * Retrieve the next <tt>Event</tt> if available
+         * 
+         * @author Daniele Pantaleone
+         * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+         **/
+        public Event poll() {
+            long next = this.sequence.get() + 1;
+            return this.isAvailable(next) ? this.consume(next) : null;
+        }
+        
+        
+        /**
+         * Retrieve the next <tt>Event</tt>, waiting up to the given time if necessary
+         * 
+         * @author Daniele Pantaleone
+         * @param  timeout The maximum amount of time to wait
+         * @param  unit The <tt>TimeUnit</tt> of the timeout
+         * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+         * @return The next <tt>Event</tt> or <tt>null</tt> if the time elapsed
+         **/
+        public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+            
+            long next = this.sequence.get() + 1;
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            
+            while (!this.isAvailable(next)) {
+                
+                if (System.nanoTime() - deadline >= 0)
+                    return null;
+                
+                EventRing.this.strategy.await();
+                
+            }
+            
+            return this.consume(next);
+            
+        }
+        
+        
+        /**
+         * Return the next <tt>Event</tt> without retrieving it
+         * 
+         * @author Daniele Pantaleone
+         * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+         **/
+        public Event peek() {
+            long next = this.sequence.get() + 1;
+            return this.isAvailable(next) ? EventRing.this.slots[(int) next & EventRing.this.mask] : null;
+        }
+        
+        
+        /**
+         * Retrieve up to the given number of available events
+         * 
+         * @author Daniele Pantaleone
+         * @param  collection The <tt>Collection</tt> where to add the events
+         * @param  max The maximum number of events to retrieve
+         * @return The number of events retrieved
+         **/
+        public int drainTo(Collection<? super Event> collection, int max) {
+            
+            int count = 0;
+            long next = this.sequence.get() + 1;
+            
+            while (count < max && this.isAvailable(next)) {
+                collection.add(EventRing.this.slots[(int) next & EventRing.this.mask]);
+                next++;
+                count++;
+            }
+            
+            // releasing all the slots at once
+            this.sequence.set(next - 1);
+            return count;
+            
+        }
+        
+        
+        /**
+         * Stop gating the producers. The consumer must not be used anymore
+         * 
+         * @author Daniele Pantaleone
+         **/
+        public void close() {
+            EventRing.this.consumers.remove(this);
+        }
+        
+        
+        /**
+         * Tell whether the given sequence number can be processed by this consumer
+         * 
+         * @author Daniele Pantaleone
+         * @param  next The sequence number
+         * @return <tt>true</tt> if the sequence number can be processed, <tt>false</tt> otherwise
+         **/
+        private boolean isAvailable(long next) {
+            
+            // sequence barrier: the consumers we depend
+            // on have to be done with the event first
+            for (Consumer dependency : this.dependencies)
+                if (dependency.sequence.get() < next)
+                    return false;
+            
+            return EventRing.this.isPublished(next);
+            
+        }
+        
+        
+        /**
+         * Read the slot of the given sequence number and release it
+         * 
+         * @author Daniele Pantaleone
+         * @param  next The sequence number
+         * @return The <tt>Event</tt> stored in the slot
+         **/
+        private Event consume(long next) {
+            Event event = EventRing.this.slots[(int) next & EventRing.this.mask];
+            this.sequence.set(next);
+            return event;
+        }
+        
+    }
+    
+}
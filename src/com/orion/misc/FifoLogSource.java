@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class FifoLogSource extends PumpLogSource {
+    
+    private final Path path;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     **/
+    public FifoLogSource(Logger log, LineRing ring, Configuration config) {
+        this(log, ring, config.getString("server", "logfifo"));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  path The path of the named pipe where the game server writes its log
+     **/
+    public FifoLogSource(Logger log, LineRing ring, String path) {
+        super(log, ring);
+        this.path = Paths.get(path).toAbsolutePath();
+        this.log.debug("Fifo log source initialized: using " + path);
+    }
+    
+    
+    /**
+     * Open the named pipe.<br>
+     * This blocks until the game server opens the named pipe for writing and it's
+     * invoked again every time the game server closes it (i.e: on a restart)
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If the named pipe cannot be opened
+     * @return A <tt>ReadableByteChannel</tt> reading from the named pipe
+     **/
+    @Override
+    protected ReadableByteChannel connect() throws IOException {
+        return FileChannel.open(this.path, StandardOpenOption.READ);
+    }
+    
+}
@@ -0,0 +1,472 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Mathias Van Malderen, Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class FileLogSource implements LogSource {
+    
+    private static final int BUFFER_SIZE = 8192;
+    private static final long CHECKPOINT_DELAY = 5000;
+    
+    private final Logger log;
+    private final LineRing ring;
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final LineDecoder decoder;
+    private final Checkpoint checkpoint;
+    
+    private FileChannel channel;
+    private Object fileKey;
+    
+    private long offset;
+    private int hash;
+    private long lastCheckpoint;
+    private boolean positioned;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IOException If the log file cannot be opened
+     **/
+    public FileLogSource(Logger log, LineRing ring, Configuration config) throws IOException {
+        this(log, ring, config.getString("server", "logfile"), config.getString("server", "logcheckpoint", null));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Mathias Van Malderen, Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  path The gameserver log filepath
+     * @param  checkpoint The path of the file where to store the reading 
+     *                    position or <tt>null</tt> to always start reading
+     *                    from the end of the log file
+     * @throws IOException If the log file cannot be opened
+     **/
+    public FileLogSource(Logger log, 
+                         LineRing ring,
+                         String path,
+                         String checkpoint) throws IOException {
+        
+        this.log = log;
+        this.ring = ring;
+        this.path = Paths.get(path).toAbsolutePath();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.decoder = new LineDecoder();
+        this.checkpoint = (checkpoint != null) && (!checkpoint.trim().isEmpty()) ? new Checkpoint(checkpoint) : null;
+        
+        this.open();
+        
+        this.log.debug("File log source initialized: using " + path);
+        
+    }
+    
+    
+    /**
+     * Move the file pointer to the last checkpoint or to the end of the log
+     * file and register the log file directory with the <tt>WatchService</tt>
+     * so the <tt>Reader</tt> is told as soon as the game server writes something 
+     * in the log file (or recreates it)
+     * 
+     * @author Daniele Pantaleone
+     * @param  selector The <tt>Selector</tt> serving all the log sources
+     * @param  watcher The <tt>WatchService</tt> serving all the log sources or <tt>null</tt> if not available
+     * @throws IOException If we fail in moving the file pointer
+     **/
+    @Override
+    public void open(Selector selector, WatchService watcher) throws IOException {
+        
+        // Resuming from the last checkpoint if it's still valid: lines written
+        // while Orion was offline are processed at full speed (we don't wait 
+        // on the log file till we reach its end) and then we keep tailing it
+        if (!this.resume()) {
+            
+            // Moving the file pointer at the end of the file
+            // This actually define from when/where Orion will start 
+            // processing data. All the past log lines are going to
+            // be discarded. Usually is better to fully initialize
+            // the BOT before starting to process the log file
+            // otherwise the event/command queue will be filled
+            // without the possibility of dispatching such objects
+            this.channel.position(this.channel.size());
+            this.offset = this.channel.position();
+            this.hash = 0;
+            
+        }
+        
+        this.positioned = true;
+        
+        if (watcher == null)
+            return;
+        
+        try {
+            
+            // Directories shared by several log files are registered once:
+            // the WatchService hands back the same key for all of them
+            this.path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                                    StandardWatchEventKinds.ENTRY_MODIFY);
+            
+        } catch (IOException | UnsupportedOperationException e) {
+            
+            // We can still work by polling the log file
+            this.log.warn("Unable to watch log file directory: falling back to polling", e);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Read a chunk of data from the log file and parse all the complete lines.<br>
+     * If the end of the log file has been reached, check whether the game server
+     * rotated or truncated the log file
+     * 
+     * @author Daniele Pantaleone
+     * @param  key Always <tt>null</tt> since the log file is polled
+     * @throws IOException If we fail in reading from the log file
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read or the log file has been reopened, <tt>false</tt> otherwise
+     **/
+    @Override
+    public boolean read(SelectionKey key) throws IOException, InterruptedException {
+        
+        try {
+            
+            if (this.readChunk())
+                return true;
+            
+            // End of file reached: check whether the game server
+            // rotated or truncated the log file before going idle
+            return this.reopen();
+            
+        } catch (IOException e) {
+            
+            // Discarding the last chunk: we'll
+            // keep processing the log file anyway
+            this.buffer.clear();
+            this.decoder.reset();
+            throw e;
+            
+        } finally {
+            
+            this.save(false);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Tells whether the log source has to be polled by the <tt>Reader</tt> on every cycle
+     * 
+     * @author Daniele Pantaleone
+     * @return Always <tt>true</tt> since a <tt>FileChannel</tt> is not selectable
+     **/
+    @Override
+    public boolean isPolled() {
+        return true;
+    }
+    
+    
+    /**
+     * Store the last checkpoint and close the log file
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void close() {
+        
+        // Storing the position of
+        // the last line processed
+        this.save(true);
+        
+        try {
+            
+            // Trying to close the log file channel.
+            // This will generate an IOException if the
+            // log file has been removed meanwhile the
+            // Thread was reading new lines from it
+            if (this.channel != null)
+                this.channel.close();
+            
+        } catch (IOException e) {
+        
+            // This is very rare!
+            this.log.error("Could not to close file pointer", e);
+        
+        }
+        
+    }
+    
+    
+    /**
+     * Open the log file channel and remember which file
+     * we are reading so we can detect log rotations
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If the log file cannot be opened
+     **/
+    private void open() throws IOException {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ);
+        this.fileKey = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+        this.buffer.clear();
+        this.decoder.reset();
+    }
+    
+    
+    /**
+     * Read a chunk of data from the log file and parse all the complete lines
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If we fail in reading from the log file
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    private boolean readChunk() throws IOException, InterruptedException {
+        
+        String line = null;
+        
+        // Filling the buffer with as many bytes as available: the whole
+        // chunk is then splitted into lines without going back to the
+        // file for every single byte (as RandomAccessFile.readLine does)
+        if (this.channel.read(this.buffer) <= 0) {
+            this.ring.getLagMonitor().setBytesBehind(0);
+            return false;
+        }
+        
+        // Tracking how far we are behind the game server
+        this.ring.getLagMonitor().setBytesBehind(Math.max(this.channel.size() - this.channel.position(), 0));
+        this.buffer.flip();
+        
+        while ((line = this.decoder.decode(this.buffer)) != null) {
+            
+            this.ring.add(line);
+            this.hash = line.hashCode();
+            
+        }
+        
+        // Handing the lines to the parser stage
+        this.ring.flush();
+        
+        // The decoder retained the trailing
+        // partial line so we can reuse the buffer
+        this.buffer.clear();
+        this.offset = this.channel.position() - this.decoder.pending();
+        return true;
+        
+    }
+    
+    
+    /**
+     * Check whether the log file has been rotated or truncated.<br>
+     * If the game server created a new log file (different inode) the new
+     * file is opened and processed from the beginning. If the log file has 
+     * been truncated (i.e: on a map restart) the file pointer is rewinded
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If we fail in opening the new log file
+     * @return <tt>true</tt> if the log file has been reopened or rewinded, <tt>false</tt> otherwise
+     **/
+    private boolean reopen() throws IOException {
+        
+        Object key = null;
+        
+        try {
+            key = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            // The log file has been moved away and the game
+            // server didn't create the new one yet: keep waiting
+            return false;
+        }
+        
+        if ((key != null) && (!key.equals(this.fileKey))) {
+            this.log.debug("Log file rotation detected: reopening " + this.path);
+            this.channel.close();
+            this.open();
+            this.offset = 0;
+            this.hash = 0;
+            return true;
+        }
+        
+        if (this.channel.size() < this.channel.position()) {
+            this.log.debug("Log file truncation detected: rewinding " + this.path);
+            this.channel.position(0);
+            this.buffer.clear();
+            this.decoder.reset();
+            this.offset = 0;
+            this.hash = 0;
+            return true;
+        }
+        
+        return false;
+        
+    }
+    
+    
+    /**
+     * Move the file pointer to the last checkpoint.<br>
+     * The checkpoint is considered valid only if it has been taken on the
+     * same log file and if the line preceding the stored offset matches the
+     * one processed right before the checkpoint was stored
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If we fail in reading the log file
+     * @return <tt>true</tt> if the file pointer has been moved to the last checkpoint, <tt>false</tt> otherwise
+     **/
+    private boolean resume() throws IOException {
+        
+        if (this.checkpoint == null)
+            return false;
+        
+        try {
+            
+            if (!this.checkpoint.load())
+                return false;
+            
+        } catch (IOException e) {
+            this.log.warn("Unable to load log reader checkpoint", e);
+            return false;
+        }
+        
+        long position = this.checkpoint.getOffset();
+        
+        if ((!this.checkpoint.isFile(this.fileKey)) || (position > this.channel.size()) || (!this.verify(position, this.checkpoint.getHash()))) {
+            this.log.debug("Log reader checkpoint doesn't match " + this.path + ": discarding it");
+            return false;
+        }
+        
+        this.channel.position(position);
+        this.offset = position;
+        this.hash = this.checkpoint.getHash();
+        
+        this.log.debug("Log reader resuming from checkpoint: " + (this.channel.size() - position) + " bytes to catch up");
+        return true;
+        
+    }
+    
+    
+    /**
+     * Tells whether the line ending at the given offset matches the given hash code
+     * 
+     * @author Daniele Pantaleone
+     * @param  position The offset of the first byte following the line
+     * @param  hash The expected line hash code
+     * @throws IOException If we fail in reading the log file
+     * @return <tt>true</tt> if the line ending at the given offset matches the given hash code, <tt>false</tt> otherwise
+     **/
+    private boolean verify(long position, int hash) throws IOException {
+        
+        if (position == 0)
+            return hash == 0;
+        
+        int size = (int) Math.min(position, BUFFER_SIZE);
+        ByteBuffer chunk = ByteBuffer.allocate(size);
+        
+        while (chunk.hasRemaining()) {
+            if (this.channel.read(chunk, position - size + chunk.position()) < 0)
+                return false;
+        }
+        
+        byte[] data = chunk.array();
+        
+        // The checkpoint must point right after a line terminator
+        if (data[size - 1] != '\n')
+            return false;
+        
+        int end = size - 1;
+        int start = end - 1;
+        
+        while ((start >= 0) && (data[start] != '\n'))
+            start--;
+        
+        // The line is longer than our buffer
+        if ((start < 0) && (size < position))
+            return false;
+        
+        if ((end > start + 1) && (data[end - 1] == '\r'))
+            end--;
+        
+        return new String(data, start + 1, end - start - 1, StandardCharsets.UTF_8).hashCode() == hash;
+        
+    }
+    
+    
+    /**
+     * Store the current reading position in the checkpoint file
+     * 
+     * @author Daniele Pantaleone
+     * @param  force <tt>true</tt> to store the checkpoint right now, <tt>false</tt>
+     *               to store it only if enough time elapsed since the last one
+     **/
+    private void save(boolean force) {
+        
+        // Never store a checkpoint before the file
+        // pointer has been moved to the starting position
+        if ((this.checkpoint == null) || (!this.positioned))
+            return;
+        
+        long now = System.currentTimeMillis();
+        
+        if ((!force) && (now - this.lastCheckpoint < CHECKPOINT_DELAY))
+            return;
+        
+        try {
+            this.checkpoint.save(this.offset, this.hash, this.fileKey);
+            this.lastCheckpoint = now;
+        } catch (IOException e) {
+            this.log.error("Unable to store log reader checkpoint", e);
+        }
+        
+    }
+    
+}
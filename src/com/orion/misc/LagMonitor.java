@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 30 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class LagMonitor {
+    
+    private static final long MAX_BYTES = 262144;
+    private static final long MAX_TIME = 5000;
+    private static final String SKIP = "Item,Radio,Hit";
+    private static final long REPORT_DELAY = 60000;
+    
+    private final Logger log;
+    private final long maxBytes;
+    private final long maxTime;
+    private final List<String> skip;
+    
+    private volatile long bytesBehind;
+    private volatile long timeBehind;
+    private volatile boolean catchingUp;
+    private volatile long skipped;
+    
+    private int lastGameTime;
+    private long anchor;
+    private long lastReport;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     **/
+    public LagMonitor(Logger log) {
+        this(log, MAX_BYTES, MAX_TIME, SKIP);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  config The configuration object holding the <tt>server</tt> section
+     **/
+    public LagMonitor(Logger log, Configuration config) {
+        this(log, config.getLong("server", "lagbytes", MAX_BYTES), 
+                  config.getTime("server", "lagtime", MAX_TIME), 
+                  config.getString("server", "lagskip", SKIP));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  maxBytes The amount of bytes the reader can be behind the log writer before catching up
+     * @param  maxTime The amount of milliseconds the parser can be behind the game clock before catching up
+     * @param  skip A comma separated list of log line types to be skipped while catching up
+     **/
+    public LagMonitor(Logger log, long maxBytes, long maxTime, String skip) {
+        
+        this.log = log;
+        this.maxBytes = maxBytes;
+        this.maxTime = maxTime;
+        this.skip = new LinkedList<String>();
+        this.anchor = Long.MIN_VALUE;
+        this.lastGameTime = -1;
+        
+        for (String type : skip.split(","))
+            if (!type.trim().isEmpty())
+                this.skip.add(type.trim() + ":");
+        
+        this.log.debug("Lag monitor initialized [ bytes : " + this.maxBytes + " | time : " + this.maxTime + "ms | skip : " + this.skip + " ]");
+        
+    }
+    
+    
+    /**
+     * Return the amount of bytes the reader is behind the log writer
+     * 
+     * @author Daniele Pantaleone
+     * @return The amount of bytes the reader is behind the log writer
+     **/
+    public long getBytesBehind() {
+        return this.bytesBehind;
+    }
+    
+    
+    /**
+     * Return the amount of milliseconds the parser is behind the game clock
+     * 
+     * @author Daniele Pantaleone
+     * @return The amount of milliseconds the parser is behind the game clock
+     **/
+    public long getTimeBehind() {
+        return this.timeBehind;
+    }
+    
+    
+    /**
+     * Return the amount of log lines skipped while catching up
+     * 
+     * @author Daniele Pantaleone
+     * @return The amount of log lines skipped while catching up
+     **/
+    public long getSkipped() {
+        return this.skipped;
+    }
+    
+    
+    /**
+     * Tells whether low value log lines are currently being skipped
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the parser is catching up, <tt>false</tt> otherwise
+     **/
+    public boolean isCatchingUp() {
+        return this.catchingUp;
+    }
+    
+    
+    /**
+     * Store the amount of bytes the reader is behind the log writer.<br>
+     * This is meant to be invoked by the log reader <tt>Thread</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  bytes The amount of bytes between the log file size and the reader position
+     **/
+    public void setBytesBehind(long bytes) {
+        this.bytesBehind = bytes;
+    }
+    
+    
+    /**
+     * Update the lag using the given log line and tells whether the log line
+     * has to be parsed.<br> This is meant to be invoked by the parser <tt>Thread</tt>.
+     * The time lag is computed comparing the game clock of the log line with the 
+     * wall clock, relatively to the least lagged log line seen since the game clock
+     * has been restarted (game time restarts from 0 on every new map)
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The log line
+     * @param  gameTime The game time (in seconds) of the log line or <tt>-1</tt> if not timestamped
+     * @return <tt>true</tt> if the log line has to be parsed, <tt>false</tt> if it can be skipped
+     **/
+    public boolean accept(String line, int gameTime) {
+        
+        long now = System.currentTimeMillis();
+        
+        if (gameTime >= 0) {
+            
+            // Game clock restarted
+            if (gameTime < this.lastGameTime)
+                this.anchor = Long.MIN_VALUE;
+            
+            long stamp = gameTime * 1000L - now;
+            
+            if (stamp > this.anchor)
+                this.anchor = stamp;
+            
+            this.lastGameTime = gameTime;
+            this.timeBehind = this.anchor - stamp;
+            
+        }
+        
+        this.update(now);
+        
+        if ((!this.catchingUp) || (!this.isSkippable(line)))
+            return true;
+        
+        this.skipped++;
+        return false;
+        
+    }
+    
+    
+    /**
+     * Switch the catch-up mode on and off according to the current lag.<br>
+     * The catch-up mode is switched off once the lag is below half the thresholds
+     * so we don't keep flipping when the lag is close to the thresholds
+     * 
+     * @author Daniele Pantaleone
+     * @param  now The current time in milliseconds
+     **/
+    private void update(long now) {
+        
+        long bytes = this.bytesBehind;
+        long time = this.timeBehind;
+        
+        if ((!this.catchingUp) && ((bytes > this.maxBytes) || (time > this.maxTime))) {
+            this.catchingUp = true;
+            this.log.info("[LAG] Catch-up mode enabled [ bytes : " + bytes + " | time : " + time + "ms ]");
+        } else if ((this.catchingUp) && (bytes <= this.maxBytes / 2) && (time <= this.maxTime / 2)) {
+            this.catchingUp = false;
+            this.log.info("[LAG] Catch-up mode disabled [ bytes : " + bytes + " | time : " + time + "ms | skipped : " + this.skipped + " ]");
+        }
+        
+        if (now - this.lastReport >= REPORT_DELAY) {
+            this.lastReport = now;
+            this.log.debug("[LAG] bytes : " + bytes + " | time : " + time + "ms | skipped : " + this.skipped);
+        }
+        
+    }
+    
+    
+    /**
+     * Tells whether the given log line type can be skipped while catching up
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The log line
+     * @return <tt>true</tt> if the log line can be skipped, <tt>false</tt> otherwise
+     **/
+    private boolean isSkippable(String line) {
+        
+        int i = 0;
+        int length = line.length();
+        
+        // Skipping the timestamp: ^\s*\d+:\d+\s+
+        while ((i < length) && (line.charAt(i) == ' ')) i++;
+        while ((i < length) && (line.charAt(i) != ' ')) i++;
+        while ((i < length) && (line.charAt(i) == ' ')) i++;
+        
+        for (String type : this.skip)
+            if (line.startsWith(type, i))
+                return true;
+        
+        return false;
+        
+    }
+    
+}
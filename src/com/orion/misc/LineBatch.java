@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 28 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.Arrays;
+
+public class LineBatch {
+    
+    private final String[] lines;
+    private int size;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  capacity The maximum amount of lines the batch can hold
+     **/
+    public LineBatch(int capacity) {
+        this.lines = new String[capacity];
+        this.size = 0;
+    }
+    
+    
+    /**
+     * Append a line to the batch
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The line to be appended
+     * @throws IndexOutOfBoundsException If the batch is full
+     **/
+    public void add(String line) throws IndexOutOfBoundsException {
+        this.lines[this.size++] = line;
+    }
+    
+    
+    /**
+     * Return the line at the given index
+     * 
+     * @author Daniele Pantaleone
+     * @param  index The index of the line
+     * @return The line at the given index
+     **/
+    public String get(int index) {
+        return this.lines[index];
+    }
+    
+    
+    /**
+     * Return the amount of lines in the batch
+     * 
+     * @author Daniele Pantaleone
+     * @return The amount of lines in the batch
+     **/
+    public int size() {
+        return this.size;
+    }
+    
+    
+    /**
+     * Tells whether the batch is empty
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the batch holds no line, <tt>false</tt> otherwise
+     **/
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+    
+    
+    /**
+     * Tells whether the batch is full
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if no more lines can be appended, <tt>false</tt> otherwise
+     **/
+    public boolean isFull() {
+        return this.size == this.lines.length;
+    }
+    
+    
+    /**
+     * Empty the batch so it can be reused
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void clear() {
+        // Releasing references so lines can be garbage collected
+        Arrays.fill(this.lines, 0, this.size, null);
+        this.size = 0;
+    }
+    
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 14 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class LineDecoder {
+    
+    private static final int LINE_SIZE = 1024;
+    
+    private final Charset charset;
+    
+    private byte[] line;
+    private int length;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public LineDecoder() {
+        this(StandardCharsets.UTF_8);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  charset The <tt>Charset</tt> to be used while decoding log lines
+     **/
+    public LineDecoder(Charset charset) {
+        this.charset = charset;
+        this.line = new byte[LINE_SIZE];
+        this.length = 0;
+    }
+    
+    
+    /**
+     * Return the next complete line available in the given <tt>ByteBuffer</tt>.<br>
+     * The buffer is consumed up to the first line terminator found: if no line terminator
+     * is available the remaining bytes are retained by the decoder (so the buffer can be
+     * reused by the caller) and will be prepended to the next line being decoded
+     * 
+     * @author Daniele Pantaleone
+     * @param  buffer A <tt>ByteBuffer</tt> ready to be read (flipped)
+     * @return The next complete line without the line terminator or <tt>null</tt> 
+     *         if the buffer doesn't contain any other complete line
+     **/
+    public String decode(ByteBuffer buffer) {
+        
+        int start = buffer.position();
+        int limit = buffer.limit();
+        
+        for (int i = start; i < limit; i++) {
+            
+            // UTF-8 multibyte sequences never contain 0x0A so it's
+            // safe to split lines before decoding the byte sequence
+            if (buffer.get(i) != '\n')
+                continue;
+            
+            this.append(buffer, i - start);
+            buffer.get(); // Skipping the line terminator
+            
+            String line = this.build();
+            this.length = 0;
+            return line;
+            
+        }
+        
+        // No line terminator: keep the partial line
+        this.append(buffer, limit - start);
+        return null;
+        
+    }
+    
+    
+    /**
+     * Return the partial line retained by the decoder (if any).<br>
+     * Should be used once the end of the stream is reached, to 
+     * retrieve the last line when it's not followed by a line terminator
+     * 
+     * @author Daniele Pantaleone
+     * @return The partial line retained by the decoder or <tt>null</tt> if there is none
+     **/
+    public String flush() {
+        
+        if (this.length == 0)
+            return null;
+        
+        String line = this.build();
+        this.length = 0;
+        return line;
+        
+    }
+    
+    
+    /**
+     * Return the number of bytes of the partial line retained by the decoder
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of bytes of the partial line retained by the decoder
+     **/
+    public int pending() {
+        return this.length;
+    }
+    
+    
+    /**
+     * Discard the partial line retained by the decoder
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void reset() {
+        this.length = 0;
+    }
+    
+    
+    /**
+     * Copy the given amount of bytes from the <tt>ByteBuffer</tt> into the line buffer
+     * 
+     * @author Daniele Pantaleone
+     * @param  buffer The <tt>ByteBuffer</tt> from where to copy bytes
+     * @param  size The amount of bytes to be copied
+     **/
+    private void append(ByteBuffer buffer, int size) {
+        
+        if (this.length + size > this.line.length)
+            this.line = Arrays.copyOf(this.line, Math.max(this.line.length * 2, this.length + size));
+        
+        buffer.get(this.line, this.length, size);
+        this.length += size;
+        
+    }
+    
+    
+    /**
+     * Build a <tt>String</tt> out of the line buffer.<br>
+     * Will strip the carriage return if the log file has been
+     * generated by a game server running on Windows
+     * 
+     * @author Daniele Pantaleone
+     * @return The decoded line
+     **/
+    private String build() {
+        
+        int size = this.length;
+        
+        if ((size > 0) && (this.line[size - 1] == '\r'))
+            size--;
+        
+        return new String(this.line, 0, size, this.charset);
+        
+    }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 28 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class LineRing {
+    
+    private static final int SPIN_COUNT = 100;
+    
+    private final LineBatch[] batches;
+    private final int mask;
+    private final LagMonitor monitor;
+    
+    // Index of the next batch to be consumed (written by the consumer only)
+    private final AtomicLong head;
+    
+    // Index of the next batch to be published (written by the producer only)
+    private final AtomicLong tail;
+    
+    private volatile Thread producer;
+    private volatile Thread consumer;
+    private volatile boolean producerWaiting;
+    private volatile boolean consumerWaiting;
+    
+    // Batch currently being filled by the producer
+    private LineBatch current;
+    
+    
+    /**
+     * Object constructor.<br>
+     * A bounded ring of reusable line batches handed from a single producer 
+     * (the log reader) to a single consumer (the parser stage). Synchronization
+     * happens once per batch rather than once per line
+     * 
+     * @author Daniele Pantaleone
+     * @param  size The amount of batches in the ring (rounded up to a power of 2)
+     * @param  capacity The maximum amount of lines in a single batch
+     * @param  monitor The lag monitor of the parser stage consuming the ring
+     **/
+    public LineRing(int size, int capacity, LagMonitor monitor) {
+        
+        int length = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        
+        this.batches = new LineBatch[length];
+        this.mask = length - 1;
+        this.monitor = monitor;
+        this.head = new AtomicLong(0);
+        this.tail = new AtomicLong(0);
+        
+        for (int i = 0; i < length; i++)
+            this.batches[i] = new LineBatch(capacity);
+        
+    }
+    
+    
+    /**
+     * Return the lag monitor of the parser stage consuming the ring
+     * 
+     * @author Daniele Pantaleone
+     * @return The <tt>LagMonitor</tt> of the parser stage consuming the ring
+     **/
+    public LagMonitor getLagMonitor() {
+        return this.monitor;
+    }
+    
+    
+    ////////////////////////////////
+    // PRODUCER SIDE (LOG READER) //
+    ////////////////////////////////
+    
+    
+    /**
+     * Append a line to the batch currently being filled.<br>
+     * The batch is published as soon as it's full
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The line to be appended
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting for a free batch
+     **/
+    public void add(String line) throws InterruptedException {
+        
+        if (this.current == null)
+            this.current = this.claim();
+        
+        this.current.add(line);
+        
+        if (this.current.isFull())
+            this.flush();
+        
+    }
+    
+    
+    /**
+     * Publish the batch currently being filled, if any
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void flush() {
+        
+        if ((this.current == null) || (this.current.isEmpty()))
+            return;
+        
+        this.current = null;
+        this.tail.set(this.tail.get() + 1);
+        
+        if (this.consumerWaiting)
+            LockSupport.unpark(this.consumer);
+        
+    }
+    
+    
+    /**
+     * Return the next free batch waiting for the consumer if the ring is full
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return The next free batch
+     **/
+    private LineBatch claim() throws InterruptedException {
+        
+        long index = this.tail.get();
+        int spin = 0;
+        
+        while (index - this.head.get() >= this.batches.length) {
+            
+            if (++spin < SPIN_COUNT)
+                continue;
+            
+            this.producer = Thread.currentThread();
+            this.producerWaiting = true;
+            
+            // The flag is raised before checking again: either the consumer
+            // sees it and unparks us, or we see the released batch. An unpark
+            // coming before the park leaves a permit so no timeout is needed
+            if (index - this.head.get() >= this.batches.length)
+                LockSupport.park(this);
+            
+            this.producerWaiting = false;
+            
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            
+        }
+        
+        LineBatch batch = this.batches[(int) index & this.mask];
+        batch.clear();
+        return batch;
+        
+    }
+    
+    
+    //////////////////////////////////
+    // CONSUMER SIDE (PARSER STAGE) //
+    //////////////////////////////////
+    
+    
+    /**
+     * Return the next published batch waiting for the producer if the ring is empty.<br>
+     * The batch must be handed back using {@link #release()} once processed
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return The next published batch
+     **/
+    public LineBatch take() throws InterruptedException {
+        
+        long index = this.head.get();
+        int spin = 0;
+        
+        while (this.tail.get() == index) {
+            
+            if (++spin < SPIN_COUNT)
+                continue;
+            
+            this.consumer = Thread.currentThread();
+            this.consumerWaiting = true;
+            
+            // Same handshake as the producer side: sleep
+            // until the producer publishes a new batch
+            if (this.tail.get() == index)
+                LockSupport.park(this);
+            
+            this.consumerWaiting = false;
+            
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            
+        }
+        
+        return this.batches[(int) index & this.mask];
+        
+    }
+    
+    
+    /**
+     * Return the next published batch without waiting
+     * 
+     * @author Daniele Pantaleone
+     * @return The next published batch or <tt>null</tt> if the ring is empty
+     **/
+    public LineBatch poll() {
+        
+        long index = this.head.get();
+        
+        if (this.tail.get() == index)
+            return null;
+        
+        return this.batches[(int) index & this.mask];
+        
+    }
+    
+    
+    /**
+     * Hand the last batch returned by {@link #take()} or {@link #poll()} back to the producer
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void release() {
+        
+        this.head.set(this.head.get() + 1);
+        
+        if (this.producerWaiting)
+            LockSupport.unpark(this.producer);
+        
+    }
+    
+}
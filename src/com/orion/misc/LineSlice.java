@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 4 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+public class LineSlice implements CharSequence {
+    
+    private final String line;
+    private final int start;
+    private final int end;
+    
+    private String value;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  value The <tt>String</tt> to be wrapped
+     **/
+    public LineSlice(String value) {
+        this(value, 0, value.length());
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The log line holding the slice
+     * @param  start The index of the first character of the slice
+     * @param  end The index following the last character of the slice
+     * @throws IndexOutOfBoundsException If the given offsets are not within the log line
+     **/
+    public LineSlice(String line, int start, int end) throws IndexOutOfBoundsException {
+        
+        if (start < 0 || end > line.length() || start > end)
+            throw new IndexOutOfBoundsException("Invalid slice [ start : " + start + " | end : " + end + " | length : " + line.length() + " ]");
+        
+        this.line = line;
+        this.start = start;
+        this.end = end;
+        
+    }
+    
+    
+    /**
+     * Return the length of the slice
+     * 
+     * @author Daniele Pantaleone
+     * @return The length of the slice
+     **/
+    public int length() {
+        return this.end - this.start;
+    }
+    
+    
+    /**
+     * Return the character at the given index of the slice
+     * 
+     * @author Daniele Pantaleone
+     * @param  index The index of the character in the slice
+     * @throws IndexOutOfBoundsException If the index is not within the slice
+     * @return The character at the given index of the slice
+     **/
+    public char charAt(int index) throws IndexOutOfBoundsException {
+        
+        if (index < 0 || index >= this.length())
+            throw new IndexOutOfBoundsException("Invalid index [ index : " + index + " | length : " + this.length() + " ]");
+        
+        return this.line.charAt(this.start + index);
+        
+    }
+    
+    
+    /**
+     * Return a slice of this slice
+     * 
+     * @author Daniele Pantaleone
+     * @param  start The index of the first character within this slice
+     * @param  end The index following the last character within this slice
+     * @throws IndexOutOfBoundsException If the given offsets are not within the slice
+     * @return A <tt>LineSlice</tt> sharing the same log line
+     **/
+    public LineSlice subSequence(int start, int end) throws IndexOutOfBoundsException {
+        
+        if (end > this.length())
+            throw new IndexOutOfBoundsException("Invalid slice [ start : " + start + " | end : " + end + " | length : " + this.length() + " ]");
+        
+        return new LineSlice(this.line, this.start + start, this.start + end);
+        
+    }
+    
+    
+    /**
+     * Tells whether the slice is empty
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the slice is empty, <tt>false</tt> otherwise
+     **/
+    public boolean isEmpty() {
+        return this.start == this.end;
+    }
+    
+    
+    /**
+     * Return the slice without leading and trailing whitespaces
+     * 
+     * @author Daniele Pantaleone
+     * @return A <tt>LineSlice</tt> without leading and trailing whitespaces
+     **/
+    public LineSlice trim() {
+        
+        int start = this.start;
+        int end = this.end;
+        
+        while (start < end && this.line.charAt(start) <= ' ')
+            start++;
+        
+        while (end > start && this.line.charAt(end - 1) <= ' ')
+            end--;
+        
+        if (start == this.start && end == this.end)
+            return this;
+        
+        return new LineSlice(this.line, start, end);
+        
+    }
+    
+    
+    /**
+     * Tells whether the slice content equals the given <tt>String</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  value The <tt>String</tt> to be compared
+     * @return <tt>true</tt> if the slice content equals the given <tt>String</tt>, <tt>false</tt> otherwise
+     **/
+    public boolean contentEquals(String value) {
+        return value != null && value.length() == this.length() && this.line.regionMatches(this.start, value, 0, value.length());
+    }
+    
+    
+    /**
+     * <tt>String</tt> object representation.<br>
+     * The characters are copied out of the log line on the first call only
+     * 
+     * @author Daniele Pantaleone
+     * @return The content of the slice
+     **/
+    public String toString() {
+        
+        // racy but safe: strings are immutable so
+        // the worst case is a duplicate substring
+        String value = this.value;
+        if (value == null) {
+            value = this.start == 0 && this.end == this.line.length() ? this.line : this.line.substring(this.start, this.end);
+            this.value = value;
+        }
+        
+        return value;
+        
+    }
+    
+}
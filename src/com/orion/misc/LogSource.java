@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.WatchService;
+
+public interface LogSource {
+    
+    /**
+     * Open the log source.<br>
+     * Sources backed by a <tt>SelectableChannel</tt> must register their channels 
+     * with the given <tt>Selector</tt> using themselves as attachment. All the other 
+     * sources are polled by the <tt>Reader</tt> on every cycle: sources backed by a 
+     * file should register its directory with the given <tt>WatchService</tt> so
+     * that the <tt>Reader</tt> gets to know as soon as new data is available
+     * 
+     * @author Daniele Pantaleone
+     * @param  selector The <tt>Selector</tt> serving all the log sources
+     * @param  watcher The <tt>WatchService</tt> serving all the log sources or 
+     *                 <tt>null</tt> if the file system can't be watched
+     * @throws IOException If the log source cannot be opened
+     **/
+    public abstract void open(Selector selector, WatchService watcher) throws IOException;
+    
+    
+    /**
+     * Read the available data and hand all the complete log lines to the parser stage
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The ready <tt>SelectionKey</tt> or <tt>null</tt> if the source is being polled
+     * @throws IOException If we fail in reading from the log source
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    public abstract boolean read(SelectionKey key) throws IOException, InterruptedException;
+    
+    
+    /**
+     * Tells whether the log source has to be polled by the <tt>Reader</tt> on every cycle
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if the log source has to be polled, <tt>false</tt> otherwise
+     **/
+    public abstract boolean isPolled();
+    
+    
+    /**
+     * Close the log source releasing all the underlying resources
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public abstract void close();
+    
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 28 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.orion.parser.Parser;
+
+public class ParserStage implements Runnable {
+    
+    private static final int RING_SIZE = 64;
+    private static final int BATCH_SIZE = 256;
+    private static final int CHUNK_SIZE = 64;
+    
+    private static final Future<Runnable[]> END = Futures.immediateFuture(new Runnable[0]);
+    
+    private final Logger log;
+    private final Parser parser;
+    private final LineRing ring;
+    private final LagMonitor monitor;
+    
+    private final ExecutorService workers;
+    private final BlockingQueue<Future<Runnable[]>> sequence;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     **/
+    public ParserStage(Logger log, Parser parser) {
+        this(log, parser, new LagMonitor(log));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     * @param  monitor The monitor tracking the parser stage lag
+     **/
+    public ParserStage(Logger log, Parser parser, LagMonitor monitor) {
+        this(log, parser, monitor, 1);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     * @param  monitor The monitor tracking the parser stage lag
+     * @param  threads The number of threads decoding the log lines: 
+     *                 with a single thread lines are parsed on the stage thread
+     **/
+    public ParserStage(Logger log, Parser parser, LagMonitor monitor, int threads) {
+        
+        this.log = log;
+        this.parser = parser;
+        this.monitor = monitor;
+        this.ring = new LineRing(RING_SIZE, BATCH_SIZE, monitor);
+        
+        if (threads > 1) {
+            
+            // decoded chunks are queued in log order: the sequencer waits for each of
+            // them in turn so handlers run in the same order of the log lines
+            this.workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("DECODE-%d")
+                                                                                          .setDaemon(true)
+                                                                                          .build());
+            this.sequence = new ArrayBlockingQueue<Future<Runnable[]>>(threads * 4);
+            
+        } else {
+            
+            this.workers = null;
+            this.sequence = null;
+            
+        }
+        
+        this.log.debug("Parser stage initialized: " + RING_SIZE + " batches of " + BATCH_SIZE + " lines, " + Math.max(1, threads) + " decoding threads");
+        
+    }
+    
+    
+    /**
+     * Return the ring where the log sources have to append log lines
+     * 
+     * @author Daniele Pantaleone
+     * @return The <tt>LineRing</tt> feeding this parser stage
+     **/
+    public LineRing getRing() {
+        return this.ring;
+    }
+    
+    
+    /**
+     * Return the monitor tracking the parser stage lag
+     * 
+     * @author Daniele Pantaleone
+     * @return The <tt>LagMonitor</tt> of this parser stage
+     **/
+    public LagMonitor getLagMonitor() {
+        return this.monitor;
+    }
+    
+    
+    /**
+     * Runnable implementation.<br>
+     * Will keep parsing the line batches published by the log reader.
+     * When the interrupt signal is received the batches already 
+     * published are parsed before terminating
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void run() {
+        
+        LineBatch batch = null;
+        Thread sequencer = null;
+        
+        this.log.debug("Parser stage started: " + new DateTime().toString());
+        
+        if (this.workers != null) {
+            sequencer = new Thread(new Sequencer());
+            sequencer.setName("SEQUENCER");
+            sequencer.start();
+        }
+        
+        try {
+            
+            while (true) {
+                batch = this.ring.take();
+                this.parse(batch);
+                this.ring.release();
+            }
+            
+        } catch (InterruptedException e) {
+            
+            // Thread has received interrupt signal
+            // Parsing what the log reader already published
+            while ((batch = this.ring.poll()) != null) {
+                this.parse(batch);
+                this.ring.release();
+            }
+            
+        }
+        
+        if (sequencer != null) {
+            
+            // letting the sequencer handle the lines
+            // already decoded before shutting down
+            Uninterruptibles.putUninterruptibly(this.sequence, END);
+            Uninterruptibles.joinUninterruptibly(sequencer);
+            this.workers.shutdown();
+            
+        }
+        
+        this.log.debug("Parser stage stopped: " + new DateTime().toString());
+        
+    }
+    
+    
+    /**
+     * Parse all the lines in the given batch.<br>
+     * Low value lines are skipped if the lag monitor is in catch-up mode
+     * 
+     * @author Daniele Pantaleone
+     * @param  batch The batch to be parsed
+     **/
+    private void parse(LineBatch batch) {
+        
+        if (this.workers == null) {
+            
+            for (int i = 0; i < batch.size(); i++) {
+                
+                String line = batch.get(i);
+                
+                if (this.monitor.accept(line, this.parser.getGameTime(line)))
+                    this.parser.parseLine(line);
+                
+            }
+            
+            return;
+            
+        }
+        
+        // the batch goes back to the log reader as soon
+        // as we return: copying the lines to be decoded
+        final String[] lines = new String[batch.size()];
+        int count = 0;
+        
+        for (int i = 0; i < batch.size(); i++) {
+            
+            String line = batch.get(i);
+            
+            if (this.monitor.accept(line, this.parser.getGameTime(line)))
+                lines[count++] = line;
+            
+        }
+        
+        for (int start = 0; start < count; start += CHUNK_SIZE) {
+            
+            final int from = start;
+            final int to = Math.min(count, start + CHUNK_SIZE);
+            
+            Future<Runnable[]> chunk = this.workers.submit(new Callable<Runnable[]>() {
+                
+                public Runnable[] call() {
+                    
+                    Runnable[] tasks = new Runnable[to - from];
+                    for (int i = from; i < to; i++)
+                        tasks[i - from] = ParserStage.this.parser.prepareLine(lines[i]);
+                    
+                    return tasks;
+                    
+                }
+                
+            });
+            
+            // blocks when the sequencer falls behind: an interrupt received 
+            // here is kept for the next take so that no line is lost
+            Uninterruptibles.putUninterruptibly(this.sequence, chunk);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Runs the tasks of the decoded log lines one at a time and in log order.
+     * Handlers update the clients and the game state: running them on a single 
+     * thread keeps both the per client and the global ordering of the log
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private class Sequencer implements Runnable {
+        
+        /**
+         * Runnable implementation.<br>
+         * Will keep running decoded chunks until the parser stage stops
+         * 
+         * @author Daniele Pantaleone
+         **/
+        @Override
+        public void run() {
+            
+            Future<Runnable[]> chunk;
+            
+            while ((chunk = Uninterruptibles.takeUninterruptibly(ParserStage.this.sequence)) != END) {
+                
+                try {
+                    
+                    for (Runnable task : Uninterruptibles.getUninterruptibly(chunk))
+                        if (task != null)
+                            task.run();
+                    
+                } catch (ExecutionException e) {
+                    
+                    // Logging the Exception
+                    ParserStage.this.log.error("Unable to decode log lines", e.getCause());
+                    
+                } catch (RuntimeException e) {
+                    
+                    // Logging the Exception
+                    ParserStage.this.log.error("Unable to handle log lines", e);
+                    
+                }
+                
+            }
+            
+        }
+        
+    }
+    
+}
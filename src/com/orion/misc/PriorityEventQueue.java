@@ -0,0 +1,652 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 14 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+
+import com.orion.event.ClientCallvoteEvent;
+import com.orion.event.ClientConnectEvent;
+import com.orion.event.ClientDamageEvent;
+import com.orion.event.ClientDamageSelfEvent;
+import com.orion.event.ClientDamageTeamEvent;
+import com.orion.event.ClientDisconnectEvent;
+import com.orion.event.ClientItemPickupEvent;
+import com.orion.event.ClientKillEvent;
+import com.orion.event.ClientKillSelfEvent;
+import com.orion.event.ClientKillTeamEvent;
+import com.orion.event.ClientRadioEvent;
+import com.orion.event.ClientSayEvent;
+import com.orion.event.ClientSayPrivateEvent;
+import com.orion.event.ClientSayTeamEvent;
+import com.orion.event.Event;
+import com.orion.utility.Configuration;
+
+/**
+ * Bounded <tt>Event</tt> queue split into priority lanes. Events are taken from the 
+ * highest priority lane holding any, and every lane applies its own <tt>OverflowPolicy</tt>
+ * when full: a burst of bulk events never blocks the parser in front of a connection
+ **/
+public class PriorityEventQueue extends AbstractQueue<Event> implements BlockingQueue<Event> {
+    
+    private static final int CAPACITY = 100;
+    private static final int SAMPLE = 10;
+    
+    private static final Map<Class<?>, EventPriority> defaultPriorities = new HashMap<Class<?>, EventPriority>();
+    
+    private final Logger log;
+    private final Lane[] lanes;
+    private final int sample;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    
+    private final Map<Class<?>, EventPriority> priorities = new ConcurrentHashMap<Class<?>, EventPriority>(defaultPriorities);
+    private final Map<Class<?>, AtomicLong> drops = new ConcurrentHashMap<Class<?>, AtomicLong>();
+    
+    static {
+        
+        defaultPriorities.put(ClientConnectEvent.class,     EventPriority.CRITICAL);
+        defaultPriorities.put(ClientDisconnectEvent.class,  EventPriority.CRITICAL);
+        defaultPriorities.put(ClientSayEvent.class,         EventPriority.CRITICAL);
+        defaultPriorities.put(ClientSayTeamEvent.class,     EventPriority.CRITICAL);
+        defaultPriorities.put(ClientSayPrivateEvent.class,  EventPriority.CRITICAL);
+        defaultPriorities.put(ClientCallvoteEvent.class,    EventPriority.CRITICAL);
+        defaultPriorities.put(ClientKillEvent.class,        EventPriority.NORMAL);
+        defaultPriorities.put(ClientKillSelfEvent.class,    EventPriority.NORMAL);
+        defaultPriorities.put(ClientKillTeamEvent.class,    EventPriority.NORMAL);
+        defaultPriorities.put(ClientDamageEvent.class,      EventPriority.BULK);
+        defaultPriorities.put(ClientDamageSelfEvent.class,  EventPriority.BULK);
+        defaultPriorities.put(ClientDamageTeamEvent.class,  EventPriority.BULK);
+        defaultPriorities.put(ClientItemPickupEvent.class,  EventPriority.BULK);
+        defaultPriorities.put(ClientRadioEvent.class,       EventPriority.BULK);
+        
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  config The configuration object holding the <tt>orion</tt> section
+     **/
+    public PriorityEventQueue(Logger log, Configuration config) {
+        this(log, config.getInt("orion", "eventqueue", CAPACITY),
+                  getPolicy(config, "criticaloverflow", OverflowPolicy.BLOCK),
+                  getPolicy(config, "normaloverflow", OverflowPolicy.BLOCK),
+                  getPolicy(config, "bulkoverflow", OverflowPolicy.DROP_OLDEST),
+                  config.getInt("orion", "eventsample", SAMPLE));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  capacity The maximum number of events of every lane
+     * @param  critical The <tt>OverflowPolicy</tt> of the critical lane
+     * @param  normal The <tt>OverflowPolicy</tt> of the normal lane
+     * @param  bulk The <tt>OverflowPolicy</tt> of the bulk lane
+     * @param  sample How many new events a full lane with the <tt>SAMPLE</tt> policy
+     *                sees for every one it lets in
+     **/
+    public PriorityEventQueue(Logger log, int capacity, OverflowPolicy critical, OverflowPolicy normal, OverflowPolicy bulk, int sample) {
+        
+        this.log = log;
+        this.sample = Math.max(1, sample);
+        this.lanes = new Lane[EventPriority.values().length];
+        this.lanes[EventPriority.CRITICAL.ordinal()] = new Lane(capacity, critical);
+        this.lanes[EventPriority.NORMAL.ordinal()] = new Lane(capacity, normal);
+        this.lanes[EventPriority.BULK.ordinal()] = new Lane(capacity, bulk);
+        
+        this.log.debug("Priority event queue initialized [ capacity : " + capacity + " | critical : " + critical.name() + 
+                                                         " | normal : " + normal.name() + " | bulk : " + bulk.name() + " ]");
+        
+    }
+    
+    
+    /**
+     * Assign an <tt>Event</tt> class to a priority lane.
+     * Classes never assigned go to the <tt>NORMAL</tt> lane
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>Event</tt> class
+     * @param  priority The <tt>EventPriority</tt> of the lane
+     **/
+    public void setPriority(Class<? extends Event> type, EventPriority priority) {
+        this.priorities.put(checkNotNull(type), checkNotNull(priority));
+    }
+    
+    
+    /**
+     * Return the priority lane of an <tt>Event</tt> class
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>Event</tt> class
+     * @return The <tt>EventPriority</tt> of the lane
+     **/
+    public EventPriority getPriority(Class<?> type) {
+        EventPriority priority = this.priorities.get(type);
+        return priority != null ? priority : EventPriority.NORMAL;
+    }
+    
+    
+    /**
+     * Return the number of dropped events of the given class
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>Event</tt> class
+     * @return The number of dropped events of the given class
+     **/
+    public long getDrops(Class<?> type) {
+        AtomicLong counter = this.drops.get(type);
+        return counter != null ? counter.get() : 0;
+    }
+    
+    
+    /**
+     * Return the number of dropped events of every class
+     * 
+     * @author Daniele Pantaleone
+     * @return A <tt>Map</tt> with the number of dropped events of every class
+     **/
+    public Map<Class<?>, Long> getDrops() {
+        
+        Map<Class<?>, Long> map = new HashMap<Class<?>, Long>();
+        
+        for (Map.Entry<Class<?>, AtomicLong> entry : this.drops.entrySet())
+            map.put(entry.getKey(), entry.getValue().get());
+        
+        return map;
+        
+    }
+    
+    
+    /**
+     * Push an <tt>Event</tt> in its lane, applying the
+     * lane <tt>OverflowPolicy</tt> if the lane is full
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be pushed
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     **/
+    public void put(Event event) throws InterruptedException {
+        this.enqueue(checkNotNull(event), true, 0);
+    }
+    
+    
+    /**
+     * Push an <tt>Event</tt> in its lane without waiting
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be pushed
+     * @return <tt>true</tt> if the <tt>Event</tt> has been queued, <tt>false</tt> otherwise
+     **/
+    public boolean offer(Event event) {
+        
+        checkNotNull(event);
+        
+        try {
+            
+            return this.enqueue(event, false, 0);
+            
+        } catch (InterruptedException e) {
+            
+            // we didn't wait at all: keeping
+            // the signal for the caller
+            Thread.currentThread().interrupt();
+            return false;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Push an <tt>Event</tt> in its lane, waiting up to the 
+     * given time if the lane is full and has to block
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be pushed
+     * @param  timeout The maximum amount of time to wait
+     * @param  unit The <tt>TimeUnit</tt> of the timeout
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return <tt>true</tt> if the <tt>Event</tt> has been queued, <tt>false</tt> otherwise
+     **/
+    public boolean offer(Event event, long timeout, TimeUnit unit) throws InterruptedException {
+        return this.enqueue(checkNotNull(event), false, unit.toNanos(timeout));
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the highest priority lane, waiting if necessary
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return The next <tt>Event</tt>
+     **/
+    public Event take() throws InterruptedException {
+        
+        this.lock.lockInterruptibly();
+        
+        try {
+            
+            Event event;
+            while ((event = this.dequeue()) == null)
+                this.notEmpty.await();
+            
+            return event;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the highest priority lane if available
+     * 
+     * @author Daniele Pantaleone
+     * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+     **/
+    public Event poll() {
+        
+        this.lock.lock();
+        
+        try {
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the highest priority lane, 
+     * waiting up to the given time if necessary
+     * 
+     * @author Daniele Pantaleone
+     * @param  timeout The maximum amount of time to wait
+     * @param  unit The <tt>TimeUnit</tt> of the timeout
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return The next <tt>Event</tt> or <tt>null</tt> if the time elapsed
+     **/
+    public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+        
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        
+        try {
+            
+            Event event;
+            while ((event = this.dequeue()) == null) {
+                
+                if (nanos <= 0)
+                    return null;
+                
+                nanos = this.notEmpty.awaitNanos(nanos);
+                
+            }
+            
+            return event;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Return the next <tt>Event</tt> of the highest priority lane without retrieving it
+     * 
+     * @author Daniele Pantaleone
+     * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+     **/
+    public Event peek() {
+        
+        this.lock.lock();
+        
+        try {
+            
+            for (Lane lane : this.lanes)
+                if (!lane.events.isEmpty())
+                    return lane.events.peek();
+            
+            return null;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Retrieve all the queued events, highest priority first
+     * 
+     * @author Daniele Pantaleone
+     * @param  collection The <tt>Collection</tt> where to add the events
+     * @return The number of events retrieved
+     **/
+    public int drainTo(Collection<? super Event> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+    
+    
+    /**
+     * Retrieve up to the given number of queued events, highest priority first
+     * 
+     * @author Daniele Pantaleone
+     * @param  collection The <tt>Collection</tt> where to add the events
+     * @param  max The maximum number of events to retrieve
+     * @return The number of events retrieved
+     **/
+    public int drainTo(Collection<? super Event> collection, int max) {
+        
+        this.lock.lock();
+        
+        try {
+            
+            int count = 0;
+            Event event;
+            
+            while (count < max && (event = this.dequeue()) != null) {
+                collection.add(event);
+                count++;
+            }
+            
+            return count;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Return the number of queued events
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of queued events
+     **/
+    public int size() {
+        
+        this.lock.lock();
+        
+        try {
+            
+            int size = 0;
+            for (Lane lane : this.lanes)
+                size += lane.events.size();
+            
+            return size;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Return the number of events which can be queued 
+     * in all the lanes without applying any policy
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of events which can be queued without applying any policy
+     **/
+    public int remainingCapacity() {
+        
+        this.lock.lock();
+        
+        try {
+            
+            int remaining = 0;
+            for (Lane lane : this.lanes)
+                remaining += lane.capacity - lane.events.size();
+            
+            return remaining;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Return an <tt>Iterator</tt> over a snapshot of
+     * the queued events, highest priority first
+     * 
+     * @author Daniele Pantaleone
+     * @return An <tt>Iterator</tt> over the queued events
+     **/
+    public Iterator<Event> iterator() {
+        
+        this.lock.lock();
+        
+        try {
+            
+            List<Event> events = new ArrayList<Event>();
+            for (Lane lane : this.lanes)
+                events.addAll(lane.events);
+            
+            return Collections.unmodifiableList(events).iterator();
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Push an <tt>Event</tt> in its lane
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be pushed
+     * @param  forever Whether to wait with no time limit when the lane has to block
+     * @param  nanos The maximum amount of nanoseconds to wait when the lane has to block
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting
+     * @return <tt>true</tt> if the <tt>Event</tt> has been queued, <tt>false</tt> otherwise
+     **/
+    private boolean enqueue(Event event, boolean forever, long nanos) throws InterruptedException {
+        
+        Lane lane = this.lanes[this.getPriority(event.getClass()).ordinal()];
+        this.lock.lockInterruptibly();
+        
+        try {
+            
+            while (lane.events.size() >= lane.capacity) {
+                
+                switch (lane.policy) {
+                    
+                    case DROP_NEWEST:
+                        this.drop(event);
+                        return false;
+                    
+                    case DROP_OLDEST:
+                        this.drop(lane.events.poll());
+                        break;
+                    
+                    case SAMPLE:
+                        
+                        if (lane.overflows++ % this.sample != 0) {
+                            this.drop(event);
+                            return false;
+                        }
+                        
+                        this.drop(lane.events.poll());
+                        break;
+                    
+                    default:
+                        
+                        if (forever) {
+                            lane.notFull.await();
+                        } else {
+                            
+                            if (nanos <= 0)
+                                return false;
+                            
+                            nanos = lane.notFull.awaitNanos(nanos);
+                            
+                        }
+                    
+                }
+                
+            }
+            
+            lane.events.add(event);
+            this.notEmpty.signal();
+            return true;
+            
+        } finally {
+            this.lock.unlock();
+        }
+        
+    }
+    
+    
+    /**
+     * Retrieve the next <tt>Event</tt> of the highest priority lane.
+     * Must be invoked while holding the lock
+     * 
+     * @author Daniele Pantaleone
+     * @return The next <tt>Event</tt> or <tt>null</tt> if there is none
+     **/
+    private Event dequeue() {
+        
+        for (Lane lane : this.lanes) {
+            
+            Event event = lane.events.poll();
+            
+            if (event != null) {
+                lane.notFull.signal();
+                return event;
+            }
+            
+        }
+        
+        return null;
+        
+    }
+    
+    
+    /**
+     * Count a dropped <tt>Event</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The dropped <tt>Event</tt>
+     **/
+    private void drop(Event event) {
+        
+        AtomicLong counter = this.drops.get(event.getClass());
+        
+        if (counter == null) {
+            this.drops.put(event.getClass(), new AtomicLong());
+            counter = this.drops.get(event.getClass());
+        }
+        
+        // a power of two number of drops: report them
+        // without flooding the log during a long burst
+        long count = counter.incrementAndGet();
+        if ((count & (count - 1)) == 0)
+            this.log.debug("Dropped " + count + " " + event.getClass().getSimpleName() + " events");
+        
+    }
+    
+    
+    /**
+     * Return the <tt>OverflowPolicy</tt> configured for a lane
+     * 
+     * @author Daniele Pantaleone
+     * @param  config The configuration object holding the <tt>orion</tt> section
+     * @param  option The option holding the <tt>OverflowPolicy</tt> name
+     * @param  defaultValue The <tt>OverflowPolicy</tt> to be used if the option is missing
+     * @return The <tt>OverflowPolicy</tt> configured for the lane
+     **/
+    private static OverflowPolicy getPolicy(Configuration config, String option, OverflowPolicy defaultValue) {
+        return OverflowPolicy.valueOf(config.getString("orion", option, defaultValue.name()).toUpperCase());
+    }
+    
+    
+    /**
+     * A bounded lane of the queue
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private class Lane {
+        
+        private final ArrayDeque<Event> events;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final Condition notFull;
+        
+        private long overflows;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  capacity The maximum number of events in the lane
+         * @param  policy The <tt>OverflowPolicy</tt> of the lane
+         **/
+        public Lane(int capacity, OverflowPolicy policy) {
+            this.capacity = Math.max(1, capacity);
+            this.events = new ArrayDeque<Event>(this.capacity);
+            this.policy = policy;
+            this.notFull = PriorityEventQueue.this.lock.newCondition();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.WatchService;
+
+import org.slf4j.Logger;
+
+
+public abstract class PumpLogSource implements LogSource {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    protected final Logger log;
+    
+    private final LineRing ring;
+    private final ByteBuffer buffer;
+    private final LineDecoder decoder;
+    
+    private Pipe pipe;
+    private volatile boolean closed;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     **/
+    public PumpLogSource(Logger log, LineRing ring) {
+        this.log = log;
+        this.ring = ring;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.decoder = new LineDecoder();
+    }
+    
+    
+    /**
+     * Return a blocking channel from where to read log data
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException If the channel cannot be opened
+     * @return A <tt>ReadableByteChannel</tt> or <tt>null</tt> if there is no more log data to be read
+     **/
+    protected abstract ReadableByteChannel connect() throws IOException;
+    
+    
+    /**
+     * Open the log source.<br>
+     * Blocking channels cannot be selected so data is pumped by a dedicated 
+     * <tt>Thread</tt> into a <tt>Pipe</tt> whose source end is registered 
+     * with the given <tt>Selector</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  selector The <tt>Selector</tt> serving all the log sources
+     * @param  watcher Not used since the source is selectable
+     * @throws IOException If the <tt>Pipe</tt> cannot be created
+     **/
+    @Override
+    public void open(Selector selector, WatchService watcher) throws IOException {
+        
+        this.pipe = Pipe.open();
+        this.pipe.source().configureBlocking(false);
+        this.pipe.source().register(selector, SelectionKey.OP_READ, this);
+        
+        Thread thread = new Thread(new Runnable() {
+            
+            @Override
+            public void run() {
+                PumpLogSource.this.pump();
+            }
+            
+        });
+        
+        thread.setName("PUMP");
+        thread.setDaemon(true);
+        thread.start();
+        
+    }
+    
+    
+    /**
+     * Read the available data from the <tt>Pipe</tt> and parse all the complete log lines
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The ready <tt>SelectionKey</tt>
+     * @throws IOException If we fail in reading from the <tt>Pipe</tt>
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    @Override
+    public boolean read(SelectionKey key) throws IOException, InterruptedException {
+        
+        String line = null;
+        int count = this.pipe.source().read(this.buffer);
+        
+        if (count < 0) {
+            
+            // No more data will be written in the pipe
+            if ((line = this.decoder.flush()) != null)
+                this.ring.add(line);
+            
+            this.ring.flush();
+            key.cancel();
+            this.pipe.source().close();
+            this.log.debug("Log source input closed: " + this.getClass().getSimpleName());
+            return false;
+            
+        }
+        
+        if (count == 0)
+            return false;
+        
+        this.buffer.flip();
+        
+        while ((line = this.decoder.decode(this.buffer)) != null)
+            this.ring.add(line);
+        
+        // Handing the lines to the parser stage
+        this.ring.flush();
+        this.buffer.clear();
+        return true;
+        
+    }
+    
+    
+    /**
+     * Tells whether the log source has to be polled by the <tt>Reader</tt> on every cycle
+     * 
+     * @author Daniele Pantaleone
+     * @return Always <tt>false</tt> since the <tt>Pipe</tt> is selectable
+     **/
+    @Override
+    public boolean isPolled() {
+        return false;
+    }
+    
+    
+    /**
+     * Close the log source
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void close() {
+        
+        this.closed = true;
+        
+        try {
+            
+            if (this.pipe != null) {
+                this.pipe.source().close();
+                this.pipe.sink().close();
+            }
+            
+        } catch (IOException e) {
+            
+            // This is very rare!
+            this.log.error("Could not close log source pipe", e);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Copy log data from the blocking channel into the <tt>Pipe</tt>.<br>
+     * Writing into a full <tt>Pipe</tt> blocks, so the pump never gets
+     * ahead of the parser more than the <tt>Pipe</tt> capacity
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private void pump() {
+        
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_SIZE);
+        ReadableByteChannel channel = null;
+        
+        try {
+            
+            while ((!this.closed) && ((channel = this.connect()) != null)) {
+                
+                try {
+                    
+                    while (channel.read(chunk) >= 0) {
+                        
+                        chunk.flip();
+                        
+                        while (chunk.hasRemaining())
+                            this.pipe.sink().write(chunk);
+                        
+                        chunk.clear();
+                        
+                    }
+                    
+                } finally {
+                    
+                    channel.close();
+                    
+                }
+                
+            }
+            
+        } catch (ClosedChannelException e) {
+            
+            // Log source has been closed
+            
+        } catch (IOException e) {
+            
+            if (!this.closed)
+                this.log.error("Unable to read from log source " + this.getClass().getSimpleName(), e);
+            
+        } finally {
+            
+            try {
+                
+                // Reader will get the end of stream
+                this.pipe.sink().close();
+                
+            } catch (IOException e) {
+                
+                // This is very rare!
+                this.log.error("Could not close log source pipe", e);
+                
+            }
+            
+        }
+        
+    }
+    
+}
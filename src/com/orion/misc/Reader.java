@@ -20,27 +20,55 @@
  * THE SOFTWARE.
  * 
  * @author      Mathias Van Malderen, Daniele Pantaleone
- * @version     1.0
+ * @version     1.4
  * @copyright   Mathias Van Malderen, 03 February, 2012
  * @package     com.orion.utility
  **/
 
 package com.orion.misc;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 
 import com.orion.parser.Parser;
+import com.orion.utility.Configuration;
 
 public class Reader implements Runnable {
     
+    private static final long MIN_DELAY = 10;
+    private static final long MAX_DELAY = 1000;
+    private static final long MAX_BACKOFF = 30000;
+    
     private final Logger log;
-    private final Parser parser;
-    private final RandomAccessFile file;
+    private final List<LogSource> sources;
+    private final List<LogSource> polled;
+    private final Queue<LogSource> opening;
+    private final Queue<LogSource> closing;
+    private final List<ParserStage> stages;
+    private final Map<LogSource, Suspension> suspended;
+    private final Map<LogSource, Long> backoffs;
+    private final long delay;
+    
+    private volatile Selector selector;
+    private WatchService watcher;
     
     
     /**
@@ -50,24 +78,233 @@ public class Reader implements Runnable {
      * @param  log Main logger object reference
      * @param  parser Main parser object reference
      * @param  path The gameserver log filepath
-     * @throws FileNotFoundException If the specified path is not valid
+     * @throws IOException If the specified path is not valid
+     **/
+    public Reader(Logger log, 
+                  Parser parser,
+                  String path) throws IOException {
+        this(log, parser, path, MAX_DELAY, null);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Mathias Van Malderen, Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     * @param  path The gameserver log filepath
+     * @param  delay The maximum amount of milliseconds to wait for new 
+     *               log lines when the game server is idle
+     * @param  checkpoint The path of the file where to store the reading 
+     *                    position or <tt>null</tt> to always start reading
+     *                    from the end of the log file
+     * @throws IOException If the specified path is not valid
+     **/
+    public Reader(Logger log, 
+                  Parser parser,
+                  String path,
+                  long delay,
+                  String checkpoint) throws IOException {
+        this(log, new ParserStage(log, parser), path, delay, checkpoint);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  stage The parser stage fed by the log file
+     * @param  path The gameserver log filepath
+     * @param  delay The maximum amount of milliseconds to wait for new 
+     *               log lines when the game server is idle
+     * @param  checkpoint The path of the file where to store the reading 
+     *                    position or <tt>null</tt> to always start reading
+     *                    from the end of the log file
+     * @throws IOException If the specified path is not valid
+     **/
+    private Reader(Logger log, 
+                   ParserStage stage,
+                   String path,
+                   long delay,
+                   String checkpoint) throws IOException {
+        this(log, Collections.<LogSource>singletonList(new FileLogSource(log, stage.getRing(), path, checkpoint)), delay);
+        this.stages.add(stage);
+    }
+    
+    
+    /**
+     * Object constructor.<br>
+     * Log sources are selected using the <tt>logsource</tt> option of the 
+     * <tt>server</tt> section: a comma separated list of source types among 
+     * <tt>File</tt>, <tt>Fifo</tt>, <tt>Stdin</tt>, <tt>Tcp</tt> and <tt>Udp</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IOException If a log source cannot be created
      **/
     public Reader(Logger log, 
                   Parser parser,
-                  String path) throws FileNotFoundException {
+                  Configuration config) throws IOException {
+        this(log, new ParserStage(log, parser, new LagMonitor(log, config), config.getInt("orion", "parserthreads", 1)), config);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  stage The parser stage fed by the log sources
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IOException If a log source cannot be created
+     **/
+    private Reader(Logger log, 
+                   ParserStage stage,
+                   Configuration config) throws IOException {
+        this(log, getLogSources(log, stage.getRing(), config), config.getInt("server", "logdelay", (int) MAX_DELAY));
+        this.stages.add(stage);
+    }
+    
+    
+    /**
+     * Object constructor.<br>
+     * The parser stages fed by the given log sources must be started by the caller
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  sources The log sources to be served
+     * @param  delay The maximum amount of milliseconds to wait for new 
+     *               log lines when the game server is idle
+     **/
+    public Reader(Logger log, 
+                  List<LogSource> sources,
+                  long delay) {
         
         this.log = log;
-        this.parser = parser;
-        this.file = new RandomAccessFile(path, "r");
+        this.sources = new LinkedList<LogSource>();
+        this.polled = new LinkedList<LogSource>();
+        this.opening = new ConcurrentLinkedQueue<LogSource>(sources);
+        this.closing = new ConcurrentLinkedQueue<LogSource>();
+        this.stages = new LinkedList<ParserStage>();
+        this.suspended = new HashMap<LogSource, Suspension>();
+        this.backoffs = new HashMap<LogSource, Long>();
+        this.delay = Math.max(delay, MIN_DELAY);
         
-        this.log.debug("Log reader initialized: using " + path);
+        this.log.debug("Log reader initialized: serving " + this.opening.size() + " log sources");
+        
+    }
+    
+    
+    /**
+     * Create a new <tt>LogSource</tt> according to the specified type
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>LogSource</tt> type (i.e: <tt>File</tt>, <tt>Tcp</tt>)
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws ClassNotFoundException If the <tt>LogSource</tt> class fails in being loaded at runtime 
+     * @throws NoSuchMethodException If a matching <tt>Method</tt> is not found
+     * @throws InvocationTargetException If the underlying constructor throws an <tt>Exception</tt>
+     * @throws IllegalAccessException If the <tt>LogSource</tt> constructor is inaccessible 
+     * @throws InstantiationException If the <tt>Class</tt> that declares the underlying constructor represents an abstract class
+     * @return An initialized <tt>LogSource</tt>
+     **/
+    public static LogSource getLogSource(String type, Logger log, LineRing ring, Configuration config) throws ClassNotFoundException, NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
+        
+        // Loading the class using the source type. Invoking the constructor and returning a initialized LogSource object
+        Class<?> sourceClass = Class.forName("com.orion.misc." + Character.toUpperCase(type.charAt(0)) + type.substring(1).toLowerCase() + "LogSource");
+        Constructor<?> construct = sourceClass.getConstructor(Logger.class, LineRing.class, Configuration.class);
+        return (LogSource)construct.newInstance(log, ring, config);
+        
+    }
+    
+    
+    /**
+     * Create all the log sources listed in the <tt>logsource</tt> option of the <tt>server</tt> section
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IOException If a log source cannot be created
+     * @return A <tt>List</tt> of initialized log sources
+     **/
+    public static List<LogSource> getLogSources(Logger log, LineRing ring, Configuration config) throws IOException {
+        
+        List<LogSource> sources = new LinkedList<LogSource>();
+        
+        for (String type : config.getString("server", "logsource", "File").split(",")) {
+            
+            if (type.trim().isEmpty())
+                continue;
+            
+            try {
+                
+                sources.add(getLogSource(type.trim(), log, ring, config));
+                
+            } catch (InvocationTargetException e) {
+                
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                
+                throw new IOException("could not create log source " + type.trim(), e.getCause());
+                
+            } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+                
+                throw new IOException("could not create log source " + type.trim(), e);
+                
+            }
+            
+        }
+        
+        return sources;
         
     }
    
     
+    /**
+     * Add a log source to the ones served by this reader.<br>
+     * This can be invoked from any <tt>Thread</tt> while the reader is running: 
+     * so a single reader can serve the log sources of several <tt>Orion</tt> instances
+     * 
+     * @author Daniele Pantaleone
+     * @param  source The log source to be served
+     **/
+    public void register(LogSource source) {
+        
+        this.opening.add(source);
+        
+        if (this.selector != null)
+            this.selector.wakeup();
+        
+    }
+    
+    
+    /**
+     * Stop serving a log source and close it.<br>
+     * This can be invoked from any <tt>Thread</tt> while the reader is running
+     * 
+     * @author Daniele Pantaleone
+     * @param  source The log source to be removed
+     **/
+    public void unregister(LogSource source) {
+        
+        this.closing.add(source);
+        
+        if (this.selector != null)
+            this.selector.wakeup();
+        
+    }
+    
+    
     /**
      * Runnable implementation.<br>
-     * Will keep processing the game server log file
+     * Will keep processing the game server log sources
      * until it finds new log lines to be processed or
      * until the process is manually killed by a user.
      * 
@@ -75,33 +312,41 @@ public class Reader implements Runnable {
      **/
     public void run(){
         
-        String line = null;
+        long idle = MIN_DELAY;
+        List<Thread> threads = new LinkedList<Thread>();
         
         this.log.debug("Log reader started: " + new DateTime().toString());
+        
+        for (ParserStage stage : this.stages) {
+            Thread thread = new Thread(stage);
+            thread.setName("PARSER");
+            thread.start();
+            threads.add(thread);
+        }
 
         try {
             
-            // Moving the file pointer at the end of the file
-            // This actually define from when/where Orion will start 
-            // processing data. All the past log lines are going to
-            // be discarded. Usually is better to fully initialize
-            // the BOT before starting to process the log file
-            // otherwise the event/command queue will be filled
-            // without the possibility of dispatching such objects
-            this.file.seek(this.file.length());
+            this.selector = Selector.open();
             
         } catch (IOException e) {
             
-            // If the moving fails, we can terminate the Thread gracefully!
-            // If we let Orion to parse a log file which can be huge in terms of
-            // lines to be processed, it will takes possibily ours to get synced
-            // with the current game, and waste tons of resources.
-            this.log.error("Unable to move file pointer to last log line", e);
-            this.log.debug("Log file and game server are going to be out of sync. Shutting down...");
+            this.log.error("Unable to open log reader selector", e);
             Thread.currentThread().interrupt();
             
         }
-     
+        
+        try {
+            
+            // A single WatchService serves all the log files: it's
+            // polled on every cycle so no Thread is needed to wait on it
+            this.watcher = FileSystems.getDefault().newWatchService();
+            
+        } catch (IOException | UnsupportedOperationException e) {
+            
+            // Log files will be polled anyway
+            this.log.warn("Unable to watch log files: falling back to polling", e);
+            
+        }
           
         try {
             
@@ -109,46 +354,113 @@ public class Reader implements Runnable {
                  
                  try {
                      
-                     line = null;
+                     if (Thread.interrupted())
+                         throw new InterruptedException();
+                     
+                     // Log sources added or removed meanwhile
+                     if ((!this.opening.isEmpty()) || (!this.closing.isEmpty()))
+                         this.update();
                      
-                     while ((line = this.file.readLine()) != null) {
+                     // Log sources whose back-off is over
+                     if (!this.suspended.isEmpty())
+                         this.resume();
+                     
+                     // Log files changed since the last cycle:
+                     // don't wait on the selector before reading them
+                     boolean data = this.watch();
+                     
+                     // Sources which can't be selected (i.e: log files)
+                     // are polled on every cycle
+                     for (LogSource source : this.polled)
+                         if ((!this.suspended.containsKey(source)) && (this.read(source, null)))
+                             data = true;
+                     
+                     int ready = data ? this.selector.selectNow() : this.selector.select(idle);
+                     
+                     if (ready > 0) {
                          
-                         if (Thread.interrupted())
-                             throw new InterruptedException();
-
-                         this.parser.parseLine(line);
+                         Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+                         
+                         while (it.hasNext()) {
+                             
+                             SelectionKey key = it.next();
+                             it.remove();
+                             
+                             if ((key.isValid()) && (this.read((LogSource) key.attachment(), key)))
+                                 data = true;
+                             
+                         }
                          
                      }
+                     
+                     if (data) {
+                         // Got some data: next
+                         // time we'll be reactive
+                         idle = MIN_DELAY;
+                     } else {
+                         // Nothing happened: back-off so an idle
+                         // server doesn't keep a core busy for nothing
+                         idle = Math.min(idle * 2, this.delay);
+                     }
                  
+                 } catch (ClosedByInterruptException e) {
+                     
+                     // The channel has been closed because
+                     // the Thread received the interrupt signal
+                     break;
+                     
                  } catch (IOException e) {
                      
-                     // Logging the Exception. This doesn't happen often but still...
-                     this.log.error("Unable to read line from the log file", e);
-                     this.log.debug("Last log line discarded. Will keep processing the log file anyway...");
+                     // The selector itself failed: errors of the single
+                     // log sources are handled without leaving the cycle
+                     this.log.error("Unable to select the log sources", e);
+                     Thread.sleep(this.delay);
                      continue;
              
-                 } catch (InterruptedException e) {
-                     
-                     break;
-                     
                  }
                  
              }
             
+        } catch (InterruptedException e) {
+            
+            // Thread has received interrupt signal
+            // Breaking the cycle so it will terminate
+            
         } finally {
         
+            for (LogSource source : this.sources)
+                source.close();
+            
+            for (LogSource source : this.opening)
+                source.close();
+            
+            // Parser stages terminate once they
+            // have parsed all the published lines
+            for (Thread thread : threads)
+                thread.interrupt();
+            
+            for (Thread thread : threads) {
+                
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // Not waiting anymore
+                }
+                
+            }
+            
             try {
                 
-                // Trying to close the log file pointer.
-                // This will generate an IOException if the
-                // log file has been removed meanwhile the
-                // Thread was reading new lines from it
-                this.file.close();
+                if (this.selector != null)
+                    this.selector.close();
+                
+                if (this.watcher != null)
+                    this.watcher.close();
                 
             } catch (IOException e) {
             
                 // This is very rare!
-                this.log.error("Could not to close file pointer", e);
+                this.log.error("Could not close log reader selector", e);
             
             }
             
@@ -158,4 +470,184 @@ public class Reader implements Runnable {
         
     }
     
+    
+    /**
+     * Read from a log source.<br>
+     * A failing log source is suspended for an exponentially growing
+     * amount of time while the other log sources keep being served
+     * 
+     * @author Daniele Pantaleone
+     * @param  source The log source to be read
+     * @param  key The <tt>SelectionKey</tt> of the log source or <tt>null</tt> if the source is polled
+     * @throws ClosedByInterruptException If the reader <tt>Thread</tt> has been interrupted while reading
+     * @throws InterruptedException If the reader <tt>Thread</tt> has been interrupted while handing lines over
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    private boolean read(LogSource source, SelectionKey key) throws ClosedByInterruptException, InterruptedException {
+        
+        try {
+            
+            boolean data = source.read(key);
+            
+            // Working again: next failure
+            // starts back-off from scratch
+            if (data && (!this.backoffs.isEmpty()))
+                this.backoffs.remove(source);
+            
+            return data;
+            
+        } catch (ClosedByInterruptException e) {
+            
+            throw e;
+            
+        } catch (IOException e) {
+            
+            Long last = this.backoffs.get(source);
+            long backoff = last == null ? this.delay : Math.min(last * 2, MAX_BACKOFF);
+            this.backoffs.put(source, backoff);
+            
+            this.log.error("Unable to read line from log source " + source.getClass().getSimpleName(), e);
+            this.log.debug("Last log chunk discarded. Log source suspended for " + backoff + " milliseconds: will keep processing the other log sources anyway...");
+            
+            Suspension suspension = new Suspension(key, System.currentTimeMillis() + backoff);
+            this.suspended.put(source, suspension);
+            
+            // Not selected until resumed
+            if ((key != null) && (key.isValid()))
+                key.interestOps(0);
+            
+            return false;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Resume the log sources whose back-off is over
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private void resume() {
+        
+        long now = System.currentTimeMillis();
+        Iterator<Suspension> it = this.suspended.values().iterator();
+        
+        while (it.hasNext()) {
+            
+            Suspension suspension = it.next();
+            
+            if (suspension.until > now)
+                continue;
+            
+            if ((suspension.key != null) && (suspension.key.isValid()))
+                suspension.key.interestOps(suspension.ops);
+            
+            it.remove();
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Consume the pending notifications of the <tt>WatchService</tt>
+     * without waiting for them: the polled log sources check by 
+     * themselves what has changed in their log files
+     * 
+     * @author Daniele Pantaleone
+     * @return <tt>true</tt> if a watched directory has changed since the last cycle, <tt>false</tt> otherwise
+     **/
+    private boolean watch() {
+        
+        if (this.watcher == null)
+            return false;
+        
+        boolean changed = false;
+        WatchKey key = null;
+        
+        while ((key = this.watcher.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+            changed = true;
+        }
+        
+        return changed;
+        
+    }
+    
+    
+    /**
+     * Open the log sources registered and close the ones 
+     * unregistered since the last cycle (in this order, so a
+     * log source can be unregistered before being opened)
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private void update() {
+        
+        LogSource source = null;
+        
+        while ((source = this.opening.poll()) != null) {
+            
+            try {
+                
+                source.open(this.selector, this.watcher);
+                this.sources.add(source);
+                
+                if (source.isPolled())
+                    this.polled.add(source);
+                
+            } catch (IOException e) {
+                
+                // Logging the Exception and keep serving the other log sources
+                this.log.error("Unable to open log source " + source.getClass().getSimpleName(), e);
+                source.close();
+                
+            }
+            
+        }
+        
+        while ((source = this.closing.poll()) != null) {
+            
+            this.sources.remove(source);
+            this.polled.remove(source);
+            this.suspended.remove(source);
+            this.backoffs.remove(source);
+            source.close();
+            
+        }
+        
+        this.log.debug("Log reader serving " + this.sources.size() + " log sources");
+        
+    }
+    
+    
+    /**
+     * A log source suspended after a read failure
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Suspension {
+        
+        private final SelectionKey key;
+        private final int ops;
+        private final long until;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  key The <tt>SelectionKey</tt> of the log source or <tt>null</tt> if the source is polled
+         * @param  until The time (in milliseconds) when the log source will be resumed
+         **/
+        public Suspension(SelectionKey key, long until) {
+            this.key = key;
+            this.ops = ((key != null) && (key.isValid())) ? key.interestOps() : 0;
+            this.until = until;
+        }
+        
+    }
+    
 }
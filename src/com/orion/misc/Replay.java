@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 21 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+
+import com.orion.console.Console;
+import com.orion.parser.Parser;
+
+public class Replay implements Runnable {
+    
+    private static final int BUFFER_SIZE = 65536;
+    
+    private final Logger log;
+    private final Parser parser;
+    private final Console console;
+    private final List<Path> paths;
+    private final double speed;
+    private final ByteBuffer buffer;
+    private final LineDecoder decoder;
+    
+    private long lines;
+    private int time;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  parser Main parser object reference
+     * @param  console Main console object reference
+     * @param  paths A <tt>List</tt> of log files to be replayed (plain or gzip compressed)
+     * @param  speed The replay speed multiplier according to the game time of the 
+     *               log lines: use <tt>0</tt> to replay the log files as fast as possible
+     **/
+    public Replay(Logger log,
+                  Parser parser,
+                  Console console,
+                  List<String> paths,
+                  double speed) {
+        
+        this.log = log;
+        this.parser = parser;
+        this.console = console;
+        this.paths = new LinkedList<Path>();
+        this.speed = speed;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.decoder = new LineDecoder();
+        
+        for (String path : paths)
+            this.paths.add(Paths.get(path));
+        
+        this.log.debug("Log replay initialized: " + this.paths.size() + " log files to be processed");
+        
+    }
+    
+    
+    /**
+     * Runnable implementation.<br>
+     * Will process all the given log files, in order, through the parser.
+     * The console is kept in read only mode while the log files are being
+     * processed so events generated by the replay have no side effect
+     * on the game server currently managed
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void run() {
+        
+        boolean readonly = this.console.isReadOnly();
+        long events = this.parser.getEventCount();
+        long start = System.nanoTime();
+        
+        this.log.debug("Log replay started: " + new DateTime().toString());
+        this.console.setReadOnly(true);
+        
+        try {
+            
+            for (Path path : this.paths) {
+                
+                try {
+                    
+                    this.log.debug("Replaying log file: " + path);
+                    this.replay(path);
+                    
+                } catch (IOException e) {
+                    
+                    // Logging the Exception and keep processing other log files
+                    this.log.error("Unable to replay log file " + path, e);
+                    
+                }
+                
+            }
+            
+        } catch (InterruptedException e) {
+            
+            // Thread has received interrupt signal
+            // We'll just report what we did so far
+            this.log.debug("Log replay interrupted");
+            
+        } finally {
+            
+            this.console.setReadOnly(readonly);
+            
+        }
+        
+        long elapsed = Math.max((System.nanoTime() - start) / 1000000, 1);
+        events = this.parser.getEventCount() - events;
+        
+        this.log.info("Log replay completed: " + this.lines + " lines and " + events + " events processed in " + elapsed + "ms " +
+                      "[ lines/sec : " + (this.lines * 1000 / elapsed) + " | events/sec : " + (events * 1000 / elapsed) + " ]");
+        
+        this.log.debug("Log replay stopped: " + new DateTime().toString());
+        
+    }
+    
+    
+    /**
+     * Process a log file through the parser
+     * 
+     * @author Daniele Pantaleone
+     * @param  path The log file to be processed
+     * @throws IOException If the log file cannot be read
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     **/
+    private void replay(Path path) throws IOException, InterruptedException {
+        
+        String line = null;
+        
+        this.buffer.clear();
+        this.decoder.reset();
+        this.time = -1;
+        
+        try (ReadableByteChannel channel = this.open(path)) {
+            
+            while (channel.read(this.buffer) >= 0) {
+                
+                this.buffer.flip();
+                
+                while ((line = this.decoder.decode(this.buffer)) != null)
+                    this.parse(line);
+                
+                this.buffer.clear();
+                
+            }
+            
+            // Last line with no line terminator
+            if ((line = this.decoder.flush()) != null)
+                this.parse(line);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Open a channel on the given log file.<br>
+     * Log files ending with <tt>.gz</tt> are decompressed on the fly
+     * 
+     * @author Daniele Pantaleone
+     * @param  path The log file to be opened
+     * @throws IOException If the log file cannot be opened
+     * @return A <tt>ReadableByteChannel</tt> from where to read the log file content
+     **/
+    private ReadableByteChannel open(Path path) throws IOException {
+        
+        if (path.getFileName().toString().toLowerCase().endsWith(".gz"))
+            return Channels.newChannel(new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        
+        return FileChannel.open(path, StandardOpenOption.READ);
+        
+    }
+    
+    
+    /**
+     * Parse a log line, slowing down the replay if requested
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The log line to be parsed
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     **/
+    private void parse(String line) throws InterruptedException {
+        
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        
+        if (this.speed > 0) {
+            
+            int time = this.parser.getGameTime(line);
+            
+            // Game time restarts from 0 on every new map
+            // so we wait only if the clock moved forward
+            if ((time > this.time) && (this.time >= 0))
+                Thread.sleep((long) ((time - this.time) * 1000 / this.speed));
+            
+            if (time >= 0)
+                this.time = time;
+            
+        }
+        
+        this.parser.parseLine(line);
+        this.lines++;
+        
+    }
+
+}
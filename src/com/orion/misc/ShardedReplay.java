@@ -0,0 +1,489 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 23 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+
+import com.orion.console.Console;
+import com.orion.control.ClientCtl;
+import com.orion.event.Event;
+import com.orion.exception.ParserException;
+import com.orion.parser.Parser;
+
+public class ShardedReplay implements Runnable {
+    
+    private static final int BUFFER_SIZE = 65536;
+    private static final int WINDOW_SIZE = 67108864;
+    private static final long SHARD_SIZE = 16777216L;
+    private static final int LOOKAHEAD = 64;
+    private static final byte[] INITGAME = "InitGame:".getBytes(StandardCharsets.US_ASCII);
+    
+    private final Logger log;
+    private final Console console;
+    private final ClientCtl clientCtl;
+    private final Factory factory;
+    private final BlockingQueue<Event> eventBus;
+    private final List<Path> paths;
+    private final ForkJoinPool pool;
+    
+    private long lines;
+    private long events;
+    
+    
+    /**
+     * Create the <tt>Parser</tt> instances used to process log file shards.<br>
+     * Every shard is processed by its own <tt>Parser</tt> so that the game 
+     * state is never shared among threads
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public interface Factory {
+        
+        /**
+         * Return a new <tt>Parser</tt> instance
+         * 
+         * @author Daniele Pantaleone
+         * @param  clientCtl The <tt>ClientCtl</tt> holding the shard client slots
+         * @param  eventBus The queue where the shard events have to be published
+         * @throws ParserException If the <tt>Parser</tt> cannot be created
+         * @return A new <tt>Parser</tt> instance
+         **/
+        public Parser getParser(ClientCtl clientCtl, BlockingQueue<Event> eventBus) throws ParserException;
+        
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  console Main console object reference
+     * @param  clientCtl Main client controller object reference
+     * @param  factory The factory used to create a <tt>Parser</tt> for each shard
+     * @param  eventBus The queue where events are published, in log order, once merged
+     * @param  paths A <tt>List</tt> of log files to be replayed (plain or gzip compressed)
+     * @param  parallelism The number of threads used to parse the shards: 
+     *                     use <tt>0</tt> to use all the available processors
+     **/
+    public ShardedReplay(Logger log,
+                         Console console,
+                         ClientCtl clientCtl,
+                         Factory factory,
+                         BlockingQueue<Event> eventBus,
+                         List<String> paths,
+                         int parallelism) {
+        
+        this.log = log;
+        this.console = console;
+        this.clientCtl = clientCtl;
+        this.factory = factory;
+        this.eventBus = eventBus;
+        this.paths = new LinkedList<Path>();
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        
+        for (String path : paths)
+            this.paths.add(Paths.get(path));
+        
+        this.log.debug("Sharded log replay initialized: " + this.paths.size() + " log files to be processed using " + this.pool.getParallelism() + " threads");
+        
+    }
+    
+    
+    /**
+     * Runnable implementation.<br>
+     * Will split every log file in shards made of whole games and parse them 
+     * in parallel, publishing the generated events in log order. The console 
+     * is kept in read only mode while the log files are being processed
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void run() {
+        
+        boolean readonly = this.console.isReadOnly();
+        long start = System.nanoTime();
+        
+        this.log.debug("Sharded log replay started: " + new DateTime().toString());
+        this.console.setReadOnly(true);
+        
+        try {
+            
+            for (Path path : this.paths) {
+                
+                try {
+                    
+                    this.log.debug("Replaying log file: " + path);
+                    this.replay(path);
+                    
+                } catch (IOException | ExecutionException e) {
+                    
+                    // Logging the Exception and keep processing other log files
+                    this.log.error("Unable to replay log file " + path, e);
+                    
+                }
+                
+            }
+            
+        } catch (InterruptedException e) {
+            
+            // Thread has received interrupt signal
+            // We'll just report what we did so far
+            this.log.debug("Sharded log replay interrupted");
+            
+        } finally {
+            
+            this.pool.shutdownNow();
+            this.console.setReadOnly(readonly);
+            
+        }
+        
+        long elapsed = Math.max((System.nanoTime() - start) / 1000000, 1);
+        
+        this.log.info("Sharded log replay completed: " + this.lines + " lines and " + this.events + " events processed in " + elapsed + "ms " +
+                      "[ lines/sec : " + (this.lines * 1000 / elapsed) + " | events/sec : " + (this.events * 1000 / elapsed) + " ]");
+        
+        this.log.debug("Sharded log replay stopped: " + new DateTime().toString());
+        
+    }
+    
+    
+    /**
+     * Process a log file splitting it in shards.<br>
+     * Shards are submitted to the pool only a few at a time ahead of the
+     * merge so that the amount of buffered events stays bounded
+     * 
+     * @author Daniele Pantaleone
+     * @param  path The log file to be processed
+     * @throws IOException If the log file cannot be read
+     * @throws ExecutionException If a shard failed in being parsed
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     **/
+    private void replay(Path path) throws IOException, ExecutionException, InterruptedException {
+        
+        // Compressed log files cannot be memory
+        // mapped: we'll process them as a single shard
+        if (path.getFileName().toString().toLowerCase().endsWith(".gz")) {
+            Shard shard = new Shard(path, null, 0, -1);
+            this.pool.execute(shard);
+            this.merge(shard);
+            return;
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            
+            long size = channel.size();
+            long count = Math.max(1, Math.min(this.pool.getParallelism() * 4, size / SHARD_SIZE));
+            long start = 0;
+            
+            LinkedList<Shard> pending = new LinkedList<Shard>();
+            LinkedList<Shard> running = new LinkedList<Shard>();
+            
+            for (long i = 1; i <= count; i++) {
+                
+                long end = (i < count) ? this.getBoundary(channel, size * i / count, size) : size;
+                
+                // Shard containing no game boundary
+                if (end <= start)
+                    continue;
+                
+                pending.add(new Shard(path, channel, start, end));
+                start = end;
+                
+            }
+            
+            this.log.debug("Log file " + path + " split in " + pending.size() + " shards");
+            
+            try {
+                
+                while ((!pending.isEmpty()) || (!running.isEmpty())) {
+                    
+                    while ((!pending.isEmpty()) && (running.size() < this.pool.getParallelism() * 2)) {
+                        Shard shard = pending.removeFirst();
+                        this.pool.execute(shard);
+                        running.add(shard);
+                    }
+                    
+                    this.merge(running.removeFirst());
+                    
+                }
+                
+            } finally {
+                
+                // Do not leave shards running on a closed channel
+                for (Shard shard : running) 
+                    shard.cancel(true);
+                
+            }
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Wait for a shard to be parsed and publish its events on the main event bus
+     * 
+     * @author Daniele Pantaleone
+     * @param  shard The shard to be merged
+     * @throws ExecutionException If the shard failed in being parsed
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     **/
+    private void merge(Shard shard) throws ExecutionException, InterruptedException {
+        
+        for (Event event : shard.get())
+            this.eventBus.put(event);
+        
+        this.lines += shard.lines;
+        this.events += shard.events;
+        
+    }
+    
+    
+    /**
+     * Return the offset of the first <tt>InitGame</tt> line starting 
+     * after the given position or the log file size if there is none
+     * 
+     * @author Daniele Pantaleone
+     * @param  channel The log file channel
+     * @param  position The position from where to start the search
+     * @param  size The log file size
+     * @throws IOException If the log file cannot be read
+     * @return The offset of the first <tt>InitGame</tt> line after the given position
+     **/
+    private long getBoundary(FileChannel channel, long position, long size) throws IOException {
+        
+        // Start one byte before so the line 
+        // terminator preceding the position is checked
+        long offset = Math.max(position - 1, 0);
+        
+        while (size - offset > 1) {
+            
+            int length = (int) Math.min(WINDOW_SIZE, size - offset);
+            long next = offset + length - 1;
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, offset, length);
+            
+            for (int i = 0; i < length - 1; i++) {
+                
+                if (buffer.get(i) != '\n')
+                    continue;
+                
+                // Line crossing the window: map again from here
+                if ((i + LOOKAHEAD >= length) && (offset + length < size)) {
+                    next = offset + i;
+                    break;
+                }
+                
+                if (this.isInitGame(buffer, i + 1, length))
+                    return offset + i + 1;
+                
+            }
+            
+            offset = next;
+            
+        }
+        
+        return size;
+        
+    }
+    
+    
+    /**
+     * Tells whether the line starting at the given index is an <tt>InitGame</tt> line
+     * 
+     * @author Daniele Pantaleone
+     * @param  buffer The buffer holding the line
+     * @param  index The index where the line starts
+     * @param  limit The buffer limit
+     * @return <tt>true</tt> if the line is an <tt>InitGame</tt> line, <tt>false</tt> otherwise
+     **/
+    private boolean isInitGame(ByteBuffer buffer, int index, int limit) {
+        
+        int i = index;
+        
+        // Matching ^\s*\d+:\d+\s+InitGame:
+        while ((i < limit) && (buffer.get(i) == ' ')) i++;
+        
+        int digits = i;
+        while ((i < limit) && (buffer.get(i) >= '0') && (buffer.get(i) <= '9')) i++;
+        if ((i == digits) || (i >= limit) || (buffer.get(i++) != ':')) return false;
+        
+        digits = i;
+        while ((i < limit) && (buffer.get(i) >= '0') && (buffer.get(i) <= '9')) i++;
+        if ((i == digits) || (i >= limit) || (buffer.get(i) != ' ')) return false;
+        
+        while ((i < limit) && (buffer.get(i) == ' ')) i++;
+        
+        if (i + INITGAME.length > limit) 
+            return false;
+        
+        for (int j = 0; j < INITGAME.length; j++)
+            if (buffer.get(i + j) != INITGAME[j])
+                return false;
+        
+        return true;
+        
+    }
+    
+    
+    /**
+     * A portion of a log file made of whole games.<br>
+     * The shard is parsed using its own <tt>Parser</tt> and <tt>ClientCtl</tt>
+     * and the generated events are buffered till the shard is merged
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private class Shard extends RecursiveTask<BlockingQueue<Event>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final Path path;
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        
+        private long lines;
+        private long events;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  path The log file path
+         * @param  channel The log file channel or <tt>null</tt> to read the whole compressed log file
+         * @param  start The shard start offset
+         * @param  end The shard end offset
+         **/
+        public Shard(Path path, FileChannel channel, long start, long end) {
+            this.path = path;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+        
+        
+        /**
+         * Parse the shard
+         * 
+         * @author Daniele Pantaleone
+         * @return A <tt>BlockingQueue</tt> holding the events generated by the shard, in log order
+         **/
+        @Override
+        protected BlockingQueue<Event> compute() {
+            
+            BlockingQueue<Event> queue = new LinkedBlockingQueue<Event>();
+            Parser parser = factory.getParser(new ClientCtl(clientCtl), queue);
+            LineDecoder decoder = new LineDecoder();
+            String line = null;
+            
+            try {
+                
+                if (this.channel == null) {
+                    
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    
+                    try (ReadableByteChannel channel = Channels.newChannel(new GZIPInputStream(Files.newInputStream(this.path), BUFFER_SIZE))) {
+                        
+                        while (channel.read(buffer) >= 0) {
+                            buffer.flip();
+                            while ((line = decoder.decode(buffer)) != null) this.parse(parser, line);
+                            buffer.clear();
+                        }
+                        
+                    }
+                    
+                } else {
+                    
+                    for (long position = this.start; position < this.end; position += WINDOW_SIZE) {
+                        MappedByteBuffer buffer = this.channel.map(MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, this.end - position));
+                        while ((line = decoder.decode(buffer)) != null) this.parse(parser, line);
+                    }
+                    
+                }
+                
+                // Last line with no line terminator
+                if ((line = decoder.flush()) != null)
+                    this.parse(parser, line);
+                
+            } catch (IOException e) {
+                
+                throw new ParserException("could not read log file shard " + this.path + " [ start : " + this.start + " | end : " + this.end + " ]", e);
+                
+            }
+            
+            this.events = parser.getEventCount();
+            return queue;
+            
+        }
+        
+        
+        /**
+         * Parse a log line
+         * 
+         * @author Daniele Pantaleone
+         * @param  parser The shard parser
+         * @param  line The log line to be parsed
+         * @throws CancellationException If the replay has been stopped
+         **/
+        private void parse(Parser parser, String line) throws CancellationException {
+            
+            if (this.isCancelled())
+                throw new CancellationException();
+            
+            parser.parseLine(line);
+            this.lines++;
+            
+        }
+        
+    }
+
+}
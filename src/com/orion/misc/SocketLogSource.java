@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+
+public abstract class SocketLogSource implements LogSource {
+    
+    protected final Logger log;
+    protected final LineRing ring;
+    protected final InetSocketAddress address;
+    protected final Set<InetAddress> peers;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  address The address where to listen for log data: <tt>host:port</tt> or just <tt>port</tt>
+     * @param  peers Comma separated list of the hosts allowed to send log data
+     *               (usually just the game server): an empty list allows any host
+     * @throws IllegalArgumentException If the given address or one of the given peers is not valid
+     **/
+    public SocketLogSource(Logger log, LineRing ring, String address, String peers) throws IllegalArgumentException {
+        
+        this.log = log;
+        this.ring = ring;
+        this.peers = new HashSet<InetAddress>();
+        
+        for (String peer : peers.split(",")) {
+            
+            if (peer.trim().isEmpty())
+                continue;
+            
+            try {
+                this.peers.add(InetAddress.getByName(peer.trim()));
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("invalid log source peer: " + peer.trim(), e);
+            }
+            
+        }
+        
+        int index = address.lastIndexOf(':');
+        
+        try {
+            
+            this.address = index < 0 ? new InetSocketAddress(Integer.parseInt(address.trim())) 
+                                     : new InetSocketAddress(address.substring(0, index).trim(), Integer.parseInt(address.substring(index + 1).trim()));
+            
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid log source address: " + address, e);
+        }
+        
+    }
+    
+    
+    /**
+     * Tells whether the log source has to be polled by the <tt>Reader</tt> on every cycle
+     * 
+     * @author Daniele Pantaleone
+     * @return Always <tt>false</tt> since sockets are selectable
+     **/
+    @Override
+    public boolean isPolled() {
+        return false;
+    }
+    
+    
+    /**
+     * Tells whether the given peer is allowed to send log data
+     * 
+     * @author Daniele Pantaleone
+     * @param  peer The address of the peer
+     * @return <tt>true</tt> if the peer is allowed to send log data, <tt>false</tt> otherwise
+     **/
+    protected boolean isAllowed(SocketAddress peer) {
+        
+        if (this.peers.isEmpty())
+            return true;
+        
+        return (peer instanceof InetSocketAddress) && (this.peers.contains(((InetSocketAddress) peer).getAddress()));
+        
+    }
+    
+    
+    /**
+     * Parse a log line received from the network.<br>
+     * Lines forwarded by a syslog daemon (i.e: <tt>&lt;13&gt;Oct 25 10:00:00 host urt: 0:00 InitGame: ...</tt>)
+     * are stripped of the syslog header so the parser receives the original log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The log line to be parsed
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal while waiting for a free batch
+     **/
+    protected void parse(String line) throws InterruptedException {
+        
+        int index = 0;
+        
+        if ((line.length() > 2) && (line.charAt(0) == '<')) {
+            
+            // Skipping the syslog priority
+            index = 1;
+            while ((index < line.length()) && (line.charAt(index) >= '0') && (line.charAt(index) <= '9')) index++;
+            
+            if ((index > 1) && (index < line.length()) && (line.charAt(index) == '>')) {
+                // Skipping timestamp, hostname and tag
+                int tag = line.indexOf(": ", index);
+                index = tag < 0 ? index + 1 : tag + 2;
+            } else {
+                index = 0;
+            }
+            
+        }
+        
+        this.ring.add(index > 0 ? line.substring(index) : line);
+        
+    }
+    
+}
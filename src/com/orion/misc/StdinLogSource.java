@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class StdinLogSource extends PumpLogSource {
+    
+    private boolean connected;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     **/
+    public StdinLogSource(Logger log, LineRing ring, Configuration config) {
+        this(log, ring);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     **/
+    public StdinLogSource(Logger log, LineRing ring) {
+        super(log, ring);
+        this.log.debug("Stdin log source initialized");
+    }
+    
+    
+    /**
+     * Return a channel reading from the standard input.<br>
+     * The standard input can be read just once: when it reaches
+     * the end of stream the log source is done
+     * 
+     * @author Daniele Pantaleone
+     * @throws IOException Never thrown
+     * @return A <tt>ReadableByteChannel</tt> reading from the standard input or <tt>null</tt> 
+     *         if the standard input has already been consumed
+     **/
+    @Override
+    protected ReadableByteChannel connect() throws IOException {
+        
+        if (this.connected)
+            return null;
+        
+        this.connected = true;
+        return Channels.newChannel(System.in);
+        
+    }
+    
+}
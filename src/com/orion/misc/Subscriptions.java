@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 3 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+
+import com.google.common.eventbus.Subscribe;
+import com.orion.plugin.Plugin;
+
+public class Subscriptions {
+    
+    private final Logger log;
+    private final List<Plugin> plugins = new CopyOnWriteArrayList<Plugin>();
+    
+    private volatile Snapshot snapshot = new Snapshot(Collections.<Class<?>>emptySet());
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     **/
+    public Subscriptions(Logger log) {
+        this.log = log;
+    }
+    
+    
+    /**
+     * Add a <tt>Plugin</tt> whose subscriptions have to be tracked
+     * 
+     * @author Daniele Pantaleone
+     * @param  plugin The <tt>Plugin</tt> to be tracked
+     **/
+    public void add(Plugin plugin) {
+        this.plugins.add(plugin);
+        this.refresh();
+    }
+    
+    
+    /**
+     * Remove a <tt>Plugin</tt> from the tracked ones
+     * 
+     * @author Daniele Pantaleone
+     * @param  plugin The <tt>Plugin</tt> to be removed
+     **/
+    public void remove(Plugin plugin) {
+        this.plugins.remove(plugin);
+        this.refresh();
+    }
+    
+    
+    /**
+     * Collect the <tt>Event</tt> classes subscribed by the enabled plugins.
+     * Must be called every time a <tt>Plugin</tt> is enabled or disabled
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public synchronized void refresh() {
+        
+        Set<Class<?>> subscribed = new HashSet<Class<?>>();
+        
+        for (Plugin plugin : this.plugins) {
+            
+            // disabled plugins are not
+            // fed with events anymore
+            if (!plugin.isEnabled())
+                continue;
+            
+            for (Method method : plugin.getClass().getMethods())
+                if (method.isAnnotationPresent(Subscribe.class) && method.getParameterTypes().length == 1)
+                    subscribed.add(method.getParameterTypes()[0]);
+            
+        }
+        
+        this.snapshot = new Snapshot(subscribed);
+        this.log.debug("Event subscriptions updated: " + subscribed.size() + " event types have live subscribers");
+        
+    }
+    
+    
+    /**
+     * Tells whether an enabled <tt>Plugin</tt> subscribes the given <tt>Event</tt> class
+     * (or one of its superclasses)
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The <tt>Event</tt> class to be checked
+     * @return <tt>true</tt> if at least one enabled <tt>Plugin</tt> would 
+     *         receive the given <tt>Event</tt> class, <tt>false</tt> otherwise
+     **/
+    public boolean hasSubscribers(Class<?> type) {
+        
+        Snapshot snapshot = this.snapshot;
+        Boolean result = snapshot.cache.get(type);
+        
+        if (result == null) {
+            
+            result = false;
+            for (Class<?> subscribed : snapshot.subscribed) {
+                if (subscribed.isAssignableFrom(type)) {
+                    result = true;
+                    break;
+                }
+            }
+            
+            snapshot.cache.put(type, result);
+            
+        }
+        
+        return result;
+        
+    }
+    
+    
+    /**
+     * The subscribed <tt>Event</tt> classes collected by a single refresh
+     * together with the answers already computed for them
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Snapshot {
+        
+        private final Set<Class<?>> subscribed;
+        private final ConcurrentMap<Class<?>, Boolean> cache = new ConcurrentHashMap<Class<?>, Boolean>();
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  subscribed The subscribed <tt>Event</tt> classes
+         **/
+        public Snapshot(Set<Class<?>> subscribed) {
+            this.subscribed = subscribed;
+        }
+        
+    }
+    
+}
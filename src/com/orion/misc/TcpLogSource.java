@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class TcpLogSource extends SocketLogSource {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final ByteBuffer buffer;
+    private final Map<SocketChannel, LineDecoder> clients;
+    
+    private ServerSocketChannel server;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IllegalArgumentException If the configured address or one of the configured peers is not valid
+     **/
+    public TcpLogSource(Logger log, LineRing ring, Configuration config) throws IllegalArgumentException {
+        this(log, ring, config.getString("server", "logtcp"), config.getString("server", "logpeers", config.getString("server", "rconaddress", "127.0.0.1")));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  address The address where to listen for log lines: <tt>host:port</tt> or just <tt>port</tt>
+     * @param  peers Comma separated list of the hosts allowed to send log lines: an empty list allows any host
+     * @throws IllegalArgumentException If the given address or one of the given peers is not valid
+     **/
+    public TcpLogSource(Logger log, LineRing ring, String address, String peers) throws IllegalArgumentException {
+        super(log, ring, address, peers);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.clients = new HashMap<SocketChannel, LineDecoder>();
+        this.log.debug("Tcp log source initialized: using " + this.address);
+    }
+    
+    
+    /**
+     * Start listening for incoming connections
+     * 
+     * @author Daniele Pantaleone
+     * @param  selector The <tt>Selector</tt> serving all the log sources
+     * @param  watcher Not used since the source is selectable
+     * @throws IOException If we fail in binding the server socket
+     **/
+    @Override
+    public void open(Selector selector, WatchService watcher) throws IOException {
+        this.server = ServerSocketChannel.open();
+        this.server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        this.server.bind(this.address);
+        this.server.configureBlocking(false);
+        this.server.register(selector, SelectionKey.OP_ACCEPT, this);
+    }
+    
+    
+    /**
+     * Accept incoming connections or read the available data from a 
+     * connected client and parse all the complete log lines. Connections
+     * from a host which is not allowed to send log data are closed
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The ready <tt>SelectionKey</tt>
+     * @throws IOException If we fail in accepting a new connection
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    @Override
+    public boolean read(SelectionKey key) throws IOException, InterruptedException {
+        
+        if (key.isAcceptable()) {
+            
+            SocketChannel client = null;
+            
+            while ((client = this.server.accept()) != null) {
+                
+                if (!this.isAllowed(client.getRemoteAddress())) {
+                    this.log.warn("Tcp log source connection refused: " + client.getRemoteAddress() + " is not allowed to send log data");
+                    client.close();
+                    continue;
+                }
+                
+                client.configureBlocking(false);
+                client.register(key.selector(), SelectionKey.OP_READ, this);
+                this.clients.put(client, new LineDecoder());
+                this.log.debug("Tcp log source connection accepted: " + client.getRemoteAddress());
+                
+            }
+            
+            return false;
+            
+        }
+        
+        SocketChannel client = (SocketChannel) key.channel();
+        LineDecoder decoder = this.clients.get(client);
+        String line = null;
+        int count = 0;
+        
+        try {
+            
+            this.buffer.clear();
+            count = client.read(this.buffer);
+            
+        } catch (IOException e) {
+            
+            // Connection reset by the peer: the other
+            // clients must not be affected by this
+            this.log.warn("Unable to read from tcp log source connection", e);
+            count = -1;
+            
+        }
+        
+        if (count < 0) {
+            
+            if ((line = decoder.flush()) != null)
+                this.parse(line);
+            
+            this.ring.flush();
+            this.log.debug("Tcp log source connection closed");
+            this.clients.remove(client);
+            key.cancel();
+            client.close();
+            return false;
+            
+        }
+        
+        if (count == 0)
+            return false;
+        
+        this.buffer.flip();
+        
+        while ((line = decoder.decode(this.buffer)) != null)
+            this.parse(line);
+        
+        // Handing the lines to the parser stage
+        this.ring.flush();
+        return true;
+        
+    }
+    
+    
+    /**
+     * Close all the connections and stop listening
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void close() {
+        
+        try {
+            
+            for (SocketChannel client : this.clients.keySet())
+                client.close();
+            
+            this.clients.clear();
+            
+            if (this.server != null)
+                this.server.close();
+            
+        } catch (IOException e) {
+            
+            // This is very rare!
+            this.log.error("Could not close tcp log source", e);
+            
+        }
+        
+    }
+    
+}
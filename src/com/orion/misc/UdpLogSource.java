@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 25 October, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.WatchService;
+
+import org.slf4j.Logger;
+
+import com.orion.utility.Configuration;
+
+public class UdpLogSource extends SocketLogSource {
+    
+    private static final int BUFFER_SIZE = 65536;
+    
+    private final ByteBuffer buffer;
+    private final LineDecoder decoder;
+    
+    private DatagramChannel channel;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  config The configuration object holding the <tt>server</tt> section
+     * @throws IllegalArgumentException If the configured address or one of the configured peers is not valid
+     **/
+    public UdpLogSource(Logger log, LineRing ring, Configuration config) throws IllegalArgumentException {
+        this(log, ring, config.getString("server", "logudp"), config.getString("server", "logpeers", config.getString("server", "rconaddress", "127.0.0.1")));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  ring The ring where log lines are handed to the parser stage
+     * @param  address The address where to listen for log datagrams: <tt>host:port</tt> or just <tt>port</tt>
+     * @param  peers Comma separated list of the hosts allowed to send log datagrams: an empty list allows any host
+     * @throws IllegalArgumentException If the given address or one of the given peers is not valid
+     **/
+    public UdpLogSource(Logger log, LineRing ring, String address, String peers) throws IllegalArgumentException {
+        super(log, ring, address, peers);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.decoder = new LineDecoder();
+        this.log.debug("Udp log source initialized: using " + this.address);
+    }
+    
+    
+    /**
+     * Start listening for incoming datagrams
+     * 
+     * @author Daniele Pantaleone
+     * @param  selector The <tt>Selector</tt> serving all the log sources
+     * @param  watcher Not used since the source is selectable
+     * @throws IOException If we fail in binding the datagram socket
+     **/
+    @Override
+    public void open(Selector selector, WatchService watcher) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.bind(this.address);
+        this.channel.configureBlocking(false);
+        this.channel.register(selector, SelectionKey.OP_READ, this);
+    }
+    
+    
+    /**
+     * Receive all the pending datagrams and parse the log lines they carry.<br>
+     * Every datagram holds one or more complete log lines: a line is never 
+     * splitted among several datagrams. Datagrams sent by a host which is not
+     * allowed to send log data are dropped
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The ready <tt>SelectionKey</tt>
+     * @throws IOException If we fail in receiving a datagram
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     * @return <tt>true</tt> if some data has been read, <tt>false</tt> otherwise
+     **/
+    @Override
+    public boolean read(SelectionKey key) throws IOException, InterruptedException {
+        
+        boolean data = false;
+        SocketAddress peer = null;
+        String line = null;
+        
+        this.buffer.clear();
+        
+        while ((peer = this.channel.receive(this.buffer)) != null) {
+            
+            if (!this.isAllowed(peer)) {
+                // Anybody can send a datagram: don't
+                // let them inject fake log lines
+                this.log.debug("Udp log source datagram dropped: " + peer + " is not allowed to send log data");
+                this.buffer.clear();
+                continue;
+            }
+            
+            this.buffer.flip();
+            
+            while ((line = this.decoder.decode(this.buffer)) != null)
+                this.parse(line);
+            
+            // Datagram boundary is a line boundary
+            if ((line = this.decoder.flush()) != null)
+                this.parse(line);
+            
+            this.buffer.clear();
+            data = true;
+            
+        }
+        
+        // Handing the lines to the parser stage
+        this.ring.flush();
+        return data;
+        
+    }
+    
+    
+    /**
+     * Stop listening for incoming datagrams
+     * 
+     * @author Daniele Pantaleone
+     **/
+    @Override
+    public void close() {
+        
+        try {
+            
+            if (this.channel != null)
+                this.channel.close();
+            
+        } catch (IOException e) {
+            
+            // This is very rare!
+            this.log.error("Could not close udp log source", e);
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 10 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.concurrent.locks.LockSupport;
+
+public enum WaitStrategy {
+    
+    /**
+     * Keep checking without ever releasing the CPU: lowest 
+     * latency, but a whole core is burnt while waiting
+     **/
+    BUSY_SPIN {
+        public void idle() {}
+    },
+    
+    /**
+     * Let other threads run between two checks
+     **/
+    YIELD {
+        public void idle() {
+            Thread.yield();
+        }
+    },
+    
+    /**
+     * Sleep for a short while between two checks:
+     * cheapest on the CPU, highest latency
+     **/
+    PARK {
+        public void idle() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+    
+    private static final long PARK_NANOS = 100000L;
+    
+    
+    /**
+     * Wait for a while before checking again the awaited condition
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public abstract void idle();
+    
+    
+    /**
+     * Wait for a while before checking again the awaited condition
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> received the interrupt signal
+     **/
+    public void await() throws InterruptedException {
+        
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        
+        this.idle();
+        
+    }
+    
+}
@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 20 November, 2013
+ * @package     com.orion.misc
+ **/
+
+package com.orion.misc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orion.plugin.Plugin;
+import com.orion.utility.Configuration;
+
+public class Watchdog {
+    
+    private static final long BUDGET = 500;
+    private static final int STRIKES = 3;
+    private static final long FORGIVE = 600000;
+    private static final int STACK_DEPTH = 8;
+    
+    private final Logger log;
+    private final long budget;
+    private final int strikes;
+    private final WatchdogAction action;
+    private final ScheduledThreadPoolExecutor timer;
+    
+    private final Map<Thread, Invocation> running = new ConcurrentHashMap<Thread, Invocation>();
+    private final Map<Plugin, Record> records = new ConcurrentHashMap<Plugin, Record>();
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     **/
+    public Watchdog(Logger log) {
+        this(log, BUDGET, STRIKES, WatchdogAction.ISOLATE);
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  config The configuration object holding the <tt>orion</tt> section
+     **/
+    public Watchdog(Logger log, Configuration config) {
+        this(log, config.getLong("orion", "handlerbudget", BUDGET), 
+                  config.getInt("orion", "handlerstrikes", STRIKES), 
+                  WatchdogAction.valueOf(config.getString("orion", "slowplugin", WatchdogAction.ISOLATE.name()).toUpperCase()));
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  log Main logger object reference
+     * @param  budget The amount of milliseconds a handler can run before being flagged as slow
+     * @param  strikes The number of slow handler runs after which the <tt>WatchdogAction</tt> is taken on the plugin
+     * @param  action The <tt>WatchdogAction</tt> to be taken on plugins which keep being slow
+     **/
+    public Watchdog(Logger log, long budget, int strikes, WatchdogAction action) {
+        
+        this.log = log;
+        this.budget = Math.max(1, budget);
+        this.strikes = Math.max(1, strikes);
+        this.action = action;
+        
+        // Handlers which never return are caught
+        // by scanning the running ones periodically
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("WATCHDOG")
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+        
+        this.timer.scheduleWithFixedDelay(new Runnable() {
+            
+            public void run() {
+                Watchdog.this.scan();
+            }
+            
+        }, this.budget, this.budget, TimeUnit.MILLISECONDS);
+        
+        this.log.debug("Watchdog initialized [ budget : " + this.budget + "ms | strikes : " + this.strikes + " | action : " + this.action.name() + " ]");
+        
+    }
+    
+    
+    /**
+     * Mark the beginning of a handler run on the current <tt>Thread</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  plugin The <tt>Plugin</tt> owning the handler
+     * @param  handler The name of the handler
+     **/
+    public void begin(Plugin plugin, String handler) {
+        this.running.put(Thread.currentThread(), new Invocation(plugin, handler, System.nanoTime()));
+    }
+    
+    
+    /**
+     * Mark the end of the handler run started on the current <tt>Thread</tt>,
+     * flagging it if it went over budget
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void end() {
+        
+        Invocation invocation = this.running.remove(Thread.currentThread());
+        
+        if (invocation == null)
+            return;
+        
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - invocation.start);
+        
+        if (elapsed > this.budget && invocation.flag())
+            this.strike(invocation, "took " + elapsed + "ms");
+        
+    }
+    
+    
+    /**
+     * Tell whether the handlers of the given <tt>Plugin</tt> have to run on a slow lane
+     * 
+     * @author Daniele Pantaleone
+     * @param  plugin The <tt>Plugin</tt>
+     * @return <tt>true</tt> if the <tt>Plugin</tt> has been isolated, <tt>false</tt> otherwise
+     **/
+    public boolean isIsolated(Plugin plugin) {
+        Record record = this.records.get(plugin);
+        return record != null && record.isolated;
+    }
+    
+    
+    /**
+     * Stop watching the running handlers
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public void shutdown() {
+        this.timer.shutdownNow();
+    }
+    
+    
+    /**
+     * Flag the handlers which are still running over budget,
+     * logging where they are stuck
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private void scan() {
+        
+        long now = System.nanoTime();
+        
+        for (Map.Entry<Thread, Invocation> entry : this.running.entrySet()) {
+            
+            Invocation invocation = entry.getValue();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(now - invocation.start);
+            
+            if (elapsed <= this.budget || !invocation.flag())
+                continue;
+            
+            StringBuilder builder = new StringBuilder("has been running for " + elapsed + "ms on " + entry.getKey().getName() + ":");
+            StackTraceElement[] stack = entry.getKey().getStackTrace();
+            
+            for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++)
+                builder.append("\n\tat ").append(stack[i]);
+            
+            this.strike(invocation, builder.toString());
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Count a slow run against the <tt>Plugin</tt> of the handler, taking the
+     * <tt>WatchdogAction</tt> on it once it reaches the number of strikes
+     * 
+     * @author Daniele Pantaleone
+     * @param  invocation The slow handler run
+     * @param  message What went wrong with the handler run
+     **/
+    private void strike(Invocation invocation, String message) {
+        
+        Plugin plugin = invocation.plugin;
+        String name = plugin.getClass().getSimpleName();
+        Record record = this.records.get(plugin);
+        
+        if (record == null) {
+            
+            synchronized (this.records) {
+                
+                record = this.records.get(plugin);
+                
+                if (record == null) {
+                    record = new Record();
+                    this.records.put(plugin, record);
+                }
+                
+            }
+            
+        }
+        
+        int count = record.strike(System.currentTimeMillis());
+        this.log.warn("[" + name + "] Handler " + invocation.handler + " is over the " + this.budget + "ms budget [" + count + "/" + this.strikes + "]: " + message);
+        
+        if (count != this.strikes)
+            return;
+        
+        switch (this.action) {
+            
+            case ISOLATE:
+                
+                if (!record.isolated) {
+                    record.isolated = true;
+                    this.log.warn("[" + name + "] Moving the plugin to the slow lane: " + count + " handler runs over the " + this.budget + "ms budget would stall the other plugins");
+                }
+                
+                break;
+                
+            case DISABLE:
+                
+                if (plugin.isEnabled()) {
+                    this.log.warn("[" + name + "] Disabling the plugin: " + count + " handler runs over the " + this.budget + "ms budget would stall the other plugins");
+                    plugin.setEnabled(false);
+                }
+                
+                break;
+                
+            default:
+                break;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * A handler run being watched
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Invocation {
+        
+        private final Plugin plugin;
+        private final String handler;
+        private final long start;
+        private boolean flagged;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  plugin The <tt>Plugin</tt> owning the handler
+         * @param  handler The name of the handler
+         * @param  start The <tt>System.nanoTime()</tt> the run started at
+         **/
+        public Invocation(Plugin plugin, String handler, long start) {
+            this.plugin = plugin;
+            this.handler = handler;
+            this.start = start;
+        }
+        
+        
+        /**
+         * Flag the run as slow, so that it's counted only once
+         * 
+         * @author Daniele Pantaleone
+         * @return <tt>true</tt> if the run was not flagged yet, <tt>false</tt> otherwise
+         **/
+        public synchronized boolean flag() {
+            
+            if (this.flagged)
+                return false;
+            
+            this.flagged = true;
+            return true;
+            
+        }
+        
+    }
+    
+    
+    /**
+     * The slow runs of the handlers of a <tt>Plugin</tt>
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Record {
+        
+        private int strikes;
+        private long last;
+        private volatile boolean isolated;
+        
+        
+        /**
+         * Count a slow run. Strikes are forgiven 
+         * after a while without slow runs
+         * 
+         * @author Daniele Pantaleone
+         * @param  now The current time in milliseconds
+         * @return The number of strikes counted so far
+         **/
+        public synchronized int strike(long now) {
+            
+            if (now - this.last > FORGIVE)
+                this.strikes = 0;
+            
+            this.last = now;
+            return ++this.strikes;
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,464 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 8 November, 2013
+ * @package     com.orion.parser
+ **/
+
+package com.orion.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.orion.exception.ParserException;
+
+/**
+ * Declarative grammar of the log lines. Every rule describes one line type:
+ * 
+ * <pre>ClientJumpRunStopped: {slot:int} - way: {way:int} - time: {wtime:int}[ - attempt: {anum:int} of {amax:int}]</pre>
+ * 
+ * Literals are matched case insensitive and a blank matches any (even empty) run 
+ * of whitespaces. Fields are written as <tt>{name:type}</tt> where type is one of
+ * <tt>int</tt>, <tt>float</tt>, <tt>word</tt> (a run of non whitespace characters),
+ * <tt>text</tt> (anything, as long as the rest of the rule matches) and <tt>rest</tt> 
+ * (anything up to the end of the line). Segments enclosed in square brackets are optional.
+ * All the rules are compiled into a single character tree which recognizes the line type and 
+ * extracts the fields in one pass over the line. A grammar must not be modified after being 
+ * shared with other threads: rules are meant to be added before the grammar is published.
+ **/
+public class LogGrammar {
+    
+    private enum Type { INT, FLOAT, WORD, TEXT, REST }
+    
+    private final Node root = new Node();
+    private int fields = 0;
+    
+    
+    /**
+     * Compile a rule into the grammar
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The name of the rule, reported by the matched <tt>LogLine</tt>
+     * @param  grammar The grammar of the log line, not including the timestamp
+     * @throws ParserException If the rule is malformed or conflicts with an already compiled rule
+     **/
+    public void addRule(String name, String grammar) throws ParserException {
+        for (String alternative : expand(grammar))
+            this.compile(name, alternative);
+    }
+    
+    
+    /**
+     * Match a log line against the grammar
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @param  index The index of the first character following the timestamp
+     * @return The matched <tt>LogLine</tt> or <tt>null</tt> if no rule matches the log line
+     **/
+    public LogLine match(String line, int index) {
+        
+        // most of the lines are rejected on their very first character:
+        // bail out before allocating anything for the field spans
+        if (this.root.whitespace == null && this.root.field == null && 
+           (index >= line.length() || !this.root.chars.containsKey(Character.toLowerCase(line.charAt(index)))))
+            return null;
+        
+        int[] spans = new int[this.fields * 2];
+        Terminal terminal = match(this.root, line, index, spans, 0);
+        if (terminal == null)
+            return null;
+        
+        return new LogLine(line, terminal.rule, terminal.fields, spans);
+        
+    }
+    
+    
+    /**
+     * Compile a rule with no optional segments into the grammar
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The name of the rule
+     * @param  grammar The grammar of the log line
+     * @throws ParserException If the rule is malformed or conflicts with an already compiled rule
+     **/
+    private void compile(String name, String grammar) throws ParserException {
+        
+        List<String> names = new ArrayList<String>();
+        Node node = this.root;
+        int length = grammar.length();
+        int i = 0;
+        
+        while (i < length) {
+            
+            char c = grammar.charAt(i);
+            
+            if (Character.isWhitespace(c)) {
+                
+                while (i < length && Character.isWhitespace(grammar.charAt(i)))
+                    i++;
+                
+                if (node.whitespace == null)
+                    node.whitespace = new Node();
+                
+                node = node.whitespace;
+                continue;
+                
+            }
+            
+            if (c == '{') {
+                
+                int close = grammar.indexOf('}', i);
+                if (close == -1)
+                    throw new ParserException("Unterminated field in grammar rule [ " + name + " ]");
+                
+                String field = grammar.substring(i + 1, close);
+                int colon = field.indexOf(':');
+                String fname = (colon == -1 ? field : field.substring(0, colon)).trim();
+                Type type = colon == -1 ? Type.TEXT : getType(name, field.substring(colon + 1).trim());
+                
+                if (fname.isEmpty() || names.contains(fname))
+                    throw new ParserException("Invalid field name in grammar rule [ " + name + " | field : " + fname + " ]");
+                
+                i = close + 1;
+                if (type == Type.REST && i < length)
+                    throw new ParserException("Field of type rest not at the end of grammar rule [ " + name + " | field : " + fname + " ]");
+                
+                if (node.field == null)
+                    node.field = new Field(type);
+                else if (node.field.type != type)
+                    throw new ParserException("Field type conflicting with another grammar rule [ " + name + " | field : " + fname + " ]");
+                
+                names.add(fname);
+                node = node.field.next;
+                continue;
+                
+            }
+            
+            // backslash escapes the grammar meta characters
+            if (c == '\\' && i + 1 < length)
+                c = grammar.charAt(++i);
+            
+            Character key = Character.toLowerCase(c);
+            Node next = node.chars.get(key);
+            if (next == null) {
+                next = new Node();
+                node.chars.put(key, next);
+            }
+            
+            node = next;
+            i++;
+            
+        }
+        
+        if (node.terminal != null && !node.terminal.rule.equals(name))
+            throw new ParserException("Grammar rule matching the same log lines of another rule [ " + name + " | " + node.terminal.rule + " ]");
+        
+        node.terminal = new Terminal(name, names.toArray(new String[names.size()]));
+        this.fields = Math.max(this.fields, names.size());
+        
+    }
+    
+    
+    /**
+     * Match the remaining part of a log line starting from the given node.
+     * Literals are preferred over whitespaces which are preferred over fields:
+     * only text fields may try more than one length before giving up
+     * 
+     * @author Daniele Pantaleone
+     * @param  node The current node
+     * @param  line The log line
+     * @param  index The index of the next character to be matched
+     * @param  spans The start and end index of every extracted field
+     * @param  field The number of fields extracted so far
+     * @return The <tt>Terminal</tt> of the matched rule or <tt>null</tt> if no rule matches
+     **/
+    private static Terminal match(Node node, String line, int index, int[] spans, int field) {
+        
+        int length = line.length();
+        if (index == length && node.terminal != null)
+            return node.terminal;
+        
+        Terminal terminal;
+        
+        if (index < length) {
+            Node next = node.chars.get(Character.toLowerCase(line.charAt(index)));
+            if (next != null && (terminal = match(next, line, index + 1, spans, field)) != null)
+                return terminal;
+        }
+        
+        if (node.whitespace != null) {
+            
+            int end = index;
+            while (end < length && Character.isWhitespace(line.charAt(end)))
+                end++;
+            
+            if ((terminal = match(node.whitespace, line, end, spans, field)) != null)
+                return terminal;
+            
+        }
+        
+        if (node.field == null)
+            return null;
+        
+        Field edge = node.field;
+        spans[field * 2] = index;
+        
+        if (edge.type == Type.TEXT) {
+            
+            // greedy: the longest value letting the rest of the rule match
+            for (int end = length; end >= index; end--) {
+                spans[field * 2 + 1] = end;
+                if ((terminal = match(edge.next, line, end, spans, field + 1)) != null)
+                    return terminal;
+            }
+            
+            return null;
+            
+        }
+        
+        int end = scan(edge.type, line, index);
+        if (end == -1)
+            return null;
+        
+        spans[field * 2 + 1] = end;
+        return match(edge.next, line, end, spans, field + 1);
+        
+    }
+    
+    
+    /**
+     * Return the index following a field of the given type
+     * 
+     * @author Daniele Pantaleone
+     * @param  type The field type
+     * @param  line The log line
+     * @param  index The index of the first character of the field
+     * @return The index following the field or <tt>-1</tt> if there is no such field at the given index
+     **/
+    private static int scan(Type type, String line, int index) {
+        
+        int length = line.length();
+        int end = index;
+        
+        switch (type) {
+            
+            case INT:
+            case FLOAT:
+                
+                if (end < length && line.charAt(end) == '-')
+                    end++;
+                
+                int mark = end;
+                while (end < length && isDigit(line.charAt(end)))
+                    end++;
+                
+                if (end == mark)
+                    return -1;
+                
+                if (type == Type.FLOAT && end + 1 < length && line.charAt(end) == '.' && isDigit(line.charAt(end + 1))) {
+                    end++;
+                    while (end < length && isDigit(line.charAt(end)))
+                        end++;
+                }
+                
+                return end;
+            
+            case WORD:
+                
+                while (end < length && !Character.isWhitespace(line.charAt(end)))
+                    end++;
+                
+                return end == index ? -1 : end;
+            
+            default:
+                
+                return length;
+                
+        }
+        
+    }
+    
+    
+    /**
+     * Tell whether the given character is an ASCII digit
+     * 
+     * @author Daniele Pantaleone
+     * @param  c The character to be checked
+     * @return <tt>true</tt> if the character is an ASCII digit, <tt>false</tt> otherwise
+     **/
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    
+    /**
+     * Return the field <tt>Type</tt> matching the given name
+     * 
+     * @author Daniele Pantaleone
+     * @param  rule The name of the rule declaring the field
+     * @param  name The name of the field type
+     * @throws ParserException If the given name doesn't match any field type
+     * @return The field <tt>Type</tt> matching the given name
+     **/
+    private static Type getType(String rule, String name) throws ParserException {
+        
+        try {
+            
+            return Type.valueOf(name.toUpperCase());
+            
+        } catch (IllegalArgumentException e) {
+            throw new ParserException("Unknown field type in grammar rule [ " + rule + " | type : " + name + " ]");
+        }
+        
+    }
+    
+    
+    /**
+     * Expand the optional segments of a rule
+     * 
+     * @author Daniele Pantaleone
+     * @param  grammar The grammar of the log line
+     * @throws ParserException If an optional segment is not terminated or is nested
+     * @return A <tt>List</tt> with every alternative described by the rule
+     **/
+    private static List<String> expand(String grammar) throws ParserException {
+        
+        List<String> alternatives = new ArrayList<String>();
+        
+        int open = indexOfUnescaped(grammar, '[', 0);
+        if (open == -1) {
+            alternatives.add(grammar);
+            return alternatives;
+        }
+        
+        int close = indexOfUnescaped(grammar, ']', open);
+        if (close == -1 || indexOfUnescaped(grammar.substring(0, close), '[', open + 1) != -1)
+            throw new ParserException("Invalid optional segment in grammar [ " + grammar + " ]");
+        
+        String head = grammar.substring(0, open);
+        String body = grammar.substring(open + 1, close);
+        
+        for (String tail : expand(grammar.substring(close + 1))) {
+            alternatives.add(head + tail);
+            alternatives.add(head + body + tail);
+        }
+        
+        return alternatives;
+        
+    }
+    
+    
+    /**
+     * Return the index of the first occurrence of a character not escaped by a backslash
+     * 
+     * @author Daniele Pantaleone
+     * @param  grammar The grammar of the log line
+     * @param  c The character to be searched
+     * @param  from The index where to start the search from
+     * @return The index of the character or <tt>-1</tt> if there is no such character
+     **/
+    private static int indexOfUnescaped(String grammar, char c, int from) {
+        
+        for (int i = from; i < grammar.length(); i++) {
+            
+            char current = grammar.charAt(i);
+            if (current == '\\')
+                i++;
+            else if (current == c)
+                return i;
+            
+        }
+        
+        return -1;
+        
+    }
+    
+    
+    /**
+     * A state of the compiled grammar
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Node {
+        
+        private final Map<Character, Node> chars = new HashMap<Character, Node>();
+        private Node whitespace;
+        private Field field;
+        private Terminal terminal;
+        
+    }
+    
+    
+    /**
+     * A typed field leading to the next state of the compiled grammar
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Field {
+        
+        private final Type type;
+        private final Node next = new Node();
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  type The field type
+         **/
+        public Field(Type type) {
+            this.type = type;
+        }
+        
+    }
+    
+    
+    /**
+     * The rule recognized when the log line ends on a state
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class Terminal {
+        
+        private final String rule;
+        private final String[] fields;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  rule The name of the rule
+         * @param  fields The names of the fields extracted by the rule
+         **/
+        public Terminal(String rule, String[] fields) {
+            this.rule = rule;
+            this.fields = fields;
+        }
+        
+    }
+    
+}
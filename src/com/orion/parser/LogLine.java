@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 8 November, 2013
+ * @package     com.orion.parser
+ **/
+
+package com.orion.parser;
+
+import com.orion.misc.LineSlice;
+
+public class LogLine {
+    
+    private final String line;
+    private final String rule;
+    private final String[] fields;
+    private final int[] spans;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The matched log line
+     * @param  rule The name of the grammar rule which matched the log line
+     * @param  fields The names of the fields extracted by the grammar rule
+     * @param  spans The start and end index of every field, in declaration order
+     **/
+    public LogLine(String line, String rule, String[] fields, int[] spans) {
+        this.line = line;
+        this.rule = rule;
+        this.fields = fields;
+        this.spans = spans;
+    }
+    
+    
+    /**
+     * Return the matched log line
+     * 
+     * @author Daniele Pantaleone
+     * @return The matched log line
+     **/
+    public String getLine() {
+        return this.line;
+    }
+    
+    
+    /**
+     * Return the name of the grammar rule which matched the log line
+     * 
+     * @author Daniele Pantaleone
+     * @return The name of the grammar rule which matched the log line
+     **/
+    public String getRule() {
+        return this.rule;
+    }
+    
+    
+    /**
+     * Tell whether the given field has been extracted from the log line.
+     * Fields declared in an optional segment of the grammar rule are
+     * extracted only when the segment is part of the log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @return <tt>true</tt> if the field has been extracted, <tt>false</tt> otherwise
+     **/
+    public boolean has(String name) {
+        
+        for (String field : this.fields)
+            if (field.equals(name))
+                return true;
+        
+        return false;
+        
+    }
+    
+    
+    /**
+     * Return the value of an integer field.
+     * The value is decoded straight from the log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @throws IllegalArgumentException If the field has not been extracted from the log line
+     * @throws NumberFormatException If the field is not an integer
+     * @return The value of the given field
+     **/
+    public int getInt(String name) throws IllegalArgumentException, NumberFormatException {
+        
+        int index = this.indexOf(name);
+        int start = this.spans[index];
+        int end = this.spans[index + 1];
+        
+        boolean negative = start < end && this.line.charAt(start) == '-';
+        if (negative)
+            start++;
+        
+        if (start == end)
+            throw new NumberFormatException("Invalid integer field [ " + name + " ]");
+        
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            
+            char c = this.line.charAt(i);
+            if (c < '0' || c > '9')
+                throw new NumberFormatException("Invalid integer field [ " + name + " ]");
+            
+            value = value * 10 + (c - '0');
+            
+        }
+        
+        return negative ? -value : value;
+        
+    }
+    
+    
+    /**
+     * Return the value of a floating point field
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @throws IllegalArgumentException If the field has not been extracted from the log line
+     * @throws NumberFormatException If the field is not a floating point number
+     * @return The value of the given field
+     **/
+    public float getFloat(String name) throws IllegalArgumentException, NumberFormatException {
+        return Float.parseFloat(this.getString(name));
+    }
+    
+    
+    /**
+     * Return the value of a field as a <tt>LineSlice</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @throws IllegalArgumentException If the field has not been extracted from the log line
+     * @return A <tt>LineSlice</tt> over the given field
+     **/
+    public LineSlice getSlice(String name) throws IllegalArgumentException {
+        int index = this.indexOf(name);
+        return new LineSlice(this.line, this.spans[index], this.spans[index + 1]);
+    }
+    
+    
+    /**
+     * Return the value of a field as a <tt>String</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @throws IllegalArgumentException If the field has not been extracted from the log line
+     * @return The value of the given field
+     **/
+    public String getString(String name) throws IllegalArgumentException {
+        int index = this.indexOf(name);
+        return this.line.substring(this.spans[index], this.spans[index + 1]);
+    }
+    
+    
+    /**
+     * Return the index of the span of the given field
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The field name
+     * @throws IllegalArgumentException If the field has not been extracted from the log line
+     * @return The index of the start of the field span
+     **/
+    private int indexOf(String name) throws IllegalArgumentException {
+        
+        for (int i = 0; i < this.fields.length; i++)
+            if (this.fields[i].equals(name))
+                return i * 2;
+        
+        throw new IllegalArgumentException("Field not extracted from the log line [ rule : " + this.rule + " | field : " + name + " ]");
+        
+    }
+    
+}
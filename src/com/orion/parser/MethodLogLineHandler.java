@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 8 November, 2013
+ * @package     com.orion.parser
+ **/
+
+package com.orion.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+import com.google.common.base.Throwables;
+
+public class MethodLogLineHandler implements LogLineHandler {
+    
+    public static final MethodType TYPE = MethodType.methodType(void.class, LogLine.class);
+    
+    private final MethodHandle handle;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  handle A <tt>MethodHandle</tt> bound to its receiver 
+     *                accepting a <tt>LogLine</tt> and returning nothing
+     * @throws IllegalArgumentException If the <tt>MethodHandle</tt> type is not <tt>(LogLine)void</tt>
+     **/
+    public MethodLogLineHandler(MethodHandle handle) throws IllegalArgumentException {
+        
+        if (!handle.type().equals(TYPE))
+            throw new IllegalArgumentException("Invalid line handler type [ " + handle.type() + " ]");
+        
+        this.handle = handle;
+        
+    }
+    
+    
+    /**
+     * Handle a log line recognized by the grammar rule 
+     * this handler has been registered with in the <tt>Parser</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @param  line The <tt>LogLine</tt> holding the fields extracted from the log line
+     **/
+    public void handle(LogLine line) {
+        
+        try {
+            
+            this.handle.invokeExact(line);
+            
+        } catch (Throwable e) {
+            
+            // handlers do not declare checked
+            // exceptions so anything here is unchecked
+            throw Throwables.propagate(e);
+            
+        }
+        
+    }
+    
+}
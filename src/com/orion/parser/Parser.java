@@ -29,7 +29,9 @@ package com.orion.parser;
 
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
+import com.orion.exception.ParserException;
 import com.orion.urt.Gametype;
 import com.orion.urt.Hitlocation;
 import com.orion.urt.Item;
@@ -126,6 +128,17 @@ public interface Parser {
     public abstract Team getTeamByName(String name) throws IndexOutOfBoundsException;
     
     
+    /**
+     * Return the game time (in seconds) of the given log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @return The game time (in seconds) of the given log line or 
+     *         <tt>-1</tt> if the log line is not timestamped
+     **/
+    public abstract int getGameTime(String line);
+    
+    
     /**
      * Return a <tt>List</tt> of available <tt>Team</tt>
      * objects according to the current played <tt>Gametype</tt>
@@ -148,6 +161,41 @@ public interface Parser {
     public abstract Map<String,String> parseInfoString(String info);
     
     
+    /**
+     * Return the number of events generated since the parser has been initialized
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of events generated since the parser has been initialized
+     **/
+    public abstract long getEventCount();
+    
+    
+    /**
+     * Register a <tt>LineHandler</tt> for the log lines matching the given pattern.
+     * The pattern is tried only on log lines whose first word after the
+     * timestamp equals the given keyword (case insensitive)
+     * 
+     * @author Daniele Pantaleone
+     * @param  keyword The keyword following the timestamp of the handled log lines
+     * @param  pattern The <tt>Pattern</tt> matching the whole log line
+     * @param  handler The <tt>LineHandler</tt> to be invoked on every matched log line
+     **/
+    public abstract void addLineHandler(String keyword, Pattern pattern, LineHandler handler);
+    
+    
+    /**
+     * Register a <tt>LogLineHandler</tt> for the log lines described by the given grammar rule.
+     * Registering again a rule name replaces both the rule and its handler
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The name of the rule
+     * @param  grammar The grammar of the handled log lines (see <tt>LogGrammar</tt>)
+     * @param  handler The <tt>LogLineHandler</tt> to be invoked on every matched log line
+     * @throws ParserException If the grammar rule is malformed or conflicts with another rule
+     **/
+    public abstract void addGrammarRule(String name, String grammar, LogLineHandler handler) throws ParserException;
+    
+    
     /**
      * Parse a log line.Will generate an <tt>Event</tt> 
      * if necessary and push it in the <tt>Event</tt> bus
@@ -156,5 +204,17 @@ public interface Parser {
      * @param  line A log line
      **/
     public abstract void parseLine(String line);
+    
+    
+    /**
+     * Recognize a log line and extract its fields without touching the clients 
+     * or the game state. Can be invoked by many threads at once: the returned
+     * tasks have to be run one at a time, in the same order of the log lines
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @return The task handling the log line or <tt>null</tt> if the log line has to be discarded
+     **/
+    public abstract Runnable prepareLine(String line);
 
 }
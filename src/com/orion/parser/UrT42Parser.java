@@ -27,7 +27,8 @@
 
 package com.orion.parser;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.sql.SQLException;
@@ -37,6 +38,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,10 +57,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.orion.console.Console;
 import com.orion.control.ClientCtl;
 import com.orion.control.GroupCtl;
-import com.orion.domain.Callvote;
 import com.orion.domain.Client;
 import com.orion.event.ClientBombDefusedEvent;
 import com.orion.event.ClientBombHolderEvent;
@@ -60,6 +70,7 @@ import com.orion.event.ClientCallvoteEvent;
 import com.orion.event.ClientConnectEvent;
 import com.orion.event.ClientDamageEvent;
 import com.orion.event.ClientDamageSelfEvent;
+import com.orion.event.ClientDamageSummaryEvent;
 import com.orion.event.ClientDamageTeamEvent;
 import com.orion.event.ClientDisconnectEvent;
 import com.orion.event.ClientFlagCapturedEvent;
@@ -95,9 +106,14 @@ import com.orion.exception.AuthenticationException;
 import com.orion.exception.ExpectedParameterException;
 import com.orion.exception.ParserException;
 import com.orion.exception.RconException;
+import com.orion.misc.AuthStage;
+import com.orion.misc.DamageCoalescer;
+import com.orion.misc.LineSlice;
+import com.orion.misc.Subscriptions;
 import com.orion.urt.Cvar;
 import com.orion.urt.Gametype;
 import com.orion.urt.Hitlocation;
+import com.orion.urt.InfoString;
 import com.orion.urt.Item;
 import com.orion.urt.Mod;
 import com.orion.urt.Team;
@@ -105,6 +121,8 @@ import com.orion.urt.Team;
 public class UrT42Parser implements Parser {
     
     private static final Map<String, Pattern> patterns = new LinkedHashMap<String, Pattern>();
+    private static final Map<String, String> grammarRules = new LinkedHashMap<String, String>();
+    private static final Map<String, Class<?>[]> eventsByKeyword = new HashMap<String, Class<?>[]>();
     private static final Map<Integer, Gametype> gametypeByCode = new HashMap<Integer, Gametype>();
     private static final Map<Integer, Hitlocation> hitlocationByCode = new HashMap<Integer, Hitlocation>();
     private static final Map<Character, Item> itemByCode = new HashMap<Character, Item>();
@@ -115,6 +133,10 @@ public class UrT42Parser implements Parser {
     private static final Map<String, Team> teamByName = new HashMap<String, Team>();
     private static final Multimap<Gametype, Team> teamsByGametype = LinkedListMultimap.create();
     
+    private static final Runnable DISCARDED = new Runnable() {
+        public void run() {}
+    };
+    
     private final Log log;
     private final Console console;
     private final GroupCtl groupCtl;
@@ -123,6 +145,18 @@ public class UrT42Parser implements Parser {
     private BlockingQueue<Event> eventBus;
     private Map<String, Cvar> cvarList;
     
+    private final AtomicLong events = new AtomicLong();
+    
+    private final Map<String, List<LineRule>> handlers = new ConcurrentHashMap<String, List<LineRule>>();
+    private final Map<String, String> rules = new LinkedHashMap<String, String>();
+    private final Map<String, LogLineHandler> ruleHandlers = new ConcurrentHashMap<String, LogLineHandler>();
+    private volatile LogGrammar grammar = new LogGrammar();
+    private final InfoString infoString = new InfoString();
+    private final Subscriptions subscriptions;
+    private final AuthStage authStage;
+    private final DamageCoalescer coalescer;
+    private final ConcurrentMap<Integer, ListenableFuture<Client>> connecting = new ConcurrentHashMap<Integer, ListenableFuture<Client>>();
+    
     static {
         
         ////////////////////////////////////
@@ -350,11 +384,6 @@ public class UrT42Parser implements Parser {
         patterns.put("ClientBegin",             Pattern.compile("^\\s*\\d+:\\d+\\s?ClientBegin:\\s(?<slot>\\d+)$", Pattern.CASE_INSENSITIVE));
         patterns.put("ClientConnect",           Pattern.compile("^\\s*\\d+:\\d+\\s?ClientConnect:\\s(?<slot>\\d+)$", Pattern.CASE_INSENSITIVE));
         patterns.put("ClientDisconnect",        Pattern.compile("^\\s*\\d+:\\d+\\s?ClientDisconnect:\\s(?<slot>\\d+)$", Pattern.CASE_INSENSITIVE));
-        patterns.put("ClientJumpRunCanceled",   Pattern.compile("^\\s*\\d+:\\d+\\s?ClientJumpRunCanceled:\\s(?<slot>\\d+)\\s-\\sway:\\s(?<way>\\d+)(\\s-\\sattempt:\\s(?<anum>\\d+)\\sof\\s(?<amax>\\d+))?$", Pattern.CASE_INSENSITIVE));
-        patterns.put("ClientJumpRunStarted",    Pattern.compile("^\\s*\\d+:\\d+\\s?ClientJumpRunStarted:\\s(?<slot>\\d+)\\s-\\sway:\\s(?<way>\\d+)(\\s-\\sattempt:\\s(?<anum>\\d+)\\sof\\s(?<amax>\\d+))?$", Pattern.CASE_INSENSITIVE));
-        patterns.put("ClientJumpRunStopped",    Pattern.compile("^\\s*\\d+:\\d+\\s?ClientJumpRunStopped:\\s(?<slot>\\d+)\\s-\\sway:\\s(?<way>\\d+)\\s-\\stime:\\s(?<wtime>\\d+)(\\s-\\sattempt:\\s(?<anum>\\d+)\\sof\\s(?<amax>\\d+))?$", Pattern.CASE_INSENSITIVE));
-        patterns.put("ClientLoadPosition",      Pattern.compile("^\\s*\\d+:\\d+\\s?ClientLoadPosition:\\s(?<slot>\\d+)\\s-\\s(?<x>-?\\d+\\.\\d+)\\s-\\s(?<y>-?\\d+\\.\\d+)\\s-\\s(?<z>-?\\d+\\.\\d+)$", Pattern.CASE_INSENSITIVE));
-        patterns.put("ClientSavePosition",      Pattern.compile("^\\s*\\d+:\\d+\\s?ClientSavePosition:\\s(?<slot>\\d+)\\s-\\s(?<x>-?\\d+\\.\\d+)\\s-\\s(?<y>-?\\d+\\.\\d+)\\s-\\s(?<z>-?\\d+\\.\\d+)$", Pattern.CASE_INSENSITIVE));
         patterns.put("ClientUserinfo",          Pattern.compile("^\\s*\\d+:\\d+\\s?ClientUserinfo:\\s(?<slot>\\d+)\\s(?<infostring>.*)$", Pattern.CASE_INSENSITIVE));
         patterns.put("ClientUserinfoChanged",   Pattern.compile("^\\s*\\d+:\\d+\\s?ClientUserinfoChanged:\\s*(?<slot>\\d+)\\s*(?<infostring>.*)$", Pattern.CASE_INSENSITIVE));
         patterns.put("Exit",                    Pattern.compile("^\\s*\\d+:\\d+\\s?Exit:\\sTimelimit hit.$", Pattern.CASE_INSENSITIVE));
@@ -377,6 +406,31 @@ public class UrT42Parser implements Parser {
         // END LOADING URT42 PATTERNS //
         ////////////////////////////////
         
+        
+        /////////////////////////////////
+        // BEGIN LOADING URT42 GRAMMAR //
+        /////////////////////////////////
+        grammarRules.put("ClientJumpRunCanceled",   "ClientJumpRunCanceled: {slot:int} - way: {way:int}[ - attempt: {anum:int} of {amax:int}]");
+        grammarRules.put("ClientJumpRunStarted",    "ClientJumpRunStarted: {slot:int} - way: {way:int}[ - attempt: {anum:int} of {amax:int}]");
+        grammarRules.put("ClientJumpRunStopped",    "ClientJumpRunStopped: {slot:int} - way: {way:int} - time: {wtime:int}[ - attempt: {anum:int} of {amax:int}]");
+        grammarRules.put("ClientLoadPosition",      "ClientLoadPosition: {slot:int} - {x:float} - {y:float} - {z:float}");
+        grammarRules.put("ClientSavePosition",      "ClientSavePosition: {slot:int} - {x:float} - {y:float} - {z:float}");
+        ///////////////////////////////
+        // END LOADING URT42 GRAMMAR //
+        ///////////////////////////////
+        
+        
+        //////////////////////////////////////////
+        // BEGIN LOADING URT42 EVENT-ONLY LINES //
+        //////////////////////////////////////////
+        eventsByKeyword.put("hit",   new Class<?>[] { ClientDamageEvent.class, ClientDamageSelfEvent.class, ClientDamageTeamEvent.class, ClientDamageSummaryEvent.class });
+        eventsByKeyword.put("item",  new Class<?>[] { ClientItemPickupEvent.class });
+        eventsByKeyword.put("kill",  new Class<?>[] { ClientKillEvent.class, ClientKillSelfEvent.class, ClientKillTeamEvent.class });
+        eventsByKeyword.put("radio", new Class<?>[] { ClientRadioEvent.class });
+        ////////////////////////////////////////
+        // END LOADING URT42 EVENT-ONLY LINES //
+        ////////////////////////////////////////
+        
     }
 
 
@@ -399,12 +453,114 @@ public class UrT42Parser implements Parser {
                        BlockingQueue<Event> eventBus,
                        Map<String, Cvar> cvarList) {
         
+        this(log, console, groupCtl, clientCtl, eventBus, cvarList, null, null);
+        
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone 
+     * @param  log Main logger object reference
+     * @param  console Main console object reference
+     * @param  groupCtl The <tt>Group</tt> controller object reference
+     * @param  clientCtl The <tt>Client</tt> controller object reference
+     * @param  eventBus A <tt>BlockingQueue</tt> where to push generated events
+     * @param  cvarList A <tt>Map</tt> of <tt>Cvar</tt> objects shared 
+     *                  by the Parser and the Console
+     * @param  subscriptions The <tt>Subscriptions</tt> telling which events have live 
+     *                       subscribers or <tt>null</tt> to generate every event
+     * @param  authStage The <tt>AuthStage</tt> where to authenticate connecting clients
+     *                   or <tt>null</tt> to authenticate them on the parser thread
+     **/
+    public UrT42Parser(Log log,
+                       Console console,
+                       GroupCtl groupCtl,
+                       ClientCtl clientCtl,
+                       BlockingQueue<Event> eventBus,
+                       Map<String, Cvar> cvarList,
+                       Subscriptions subscriptions,
+                       AuthStage authStage) {
+        
+        this(log, console, groupCtl, clientCtl, eventBus, cvarList, subscriptions, authStage, null);
+        
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone 
+     * @param  log Main logger object reference
+     * @param  console Main console object reference
+     * @param  groupCtl The <tt>Group</tt> controller object reference
+     * @param  clientCtl The <tt>Client</tt> controller object reference
+     * @param  eventBus A <tt>BlockingQueue</tt> where to push generated events
+     * @param  cvarList A <tt>Map</tt> of <tt>Cvar</tt> objects shared 
+     *                  by the Parser and the Console
+     * @param  subscriptions The <tt>Subscriptions</tt> telling which events have live 
+     *                       subscribers or <tt>null</tt> to generate every event
+     * @param  authStage The <tt>AuthStage</tt> where to authenticate connecting clients
+     *                   or <tt>null</tt> to authenticate them on the parser thread
+     * @param  coalescer The <tt>DamageCoalescer</tt> aggregating hits into <tt>ClientDamageSummaryEvent</tt>
+     *                   or <tt>null</tt> to generate an event for every hit
+     **/
+    public UrT42Parser(Log log,
+                       Console console,
+                       GroupCtl groupCtl,
+                       ClientCtl clientCtl,
+                       BlockingQueue<Event> eventBus,
+                       Map<String, Cvar> cvarList,
+                       Subscriptions subscriptions,
+                       AuthStage authStage,
+                       DamageCoalescer coalescer) {
+        
         this.log = log;
         this.console = console;
         this.groupCtl = groupCtl;
         this.clientCtl = clientCtl;
         this.eventBus = eventBus;
         this.cvarList = cvarList;
+        this.subscriptions = subscriptions;
+        this.authStage = authStage;
+        this.coalescer = coalescer;
+        
+        // binding the line handlers once so that parseLine
+        // doesn't need to look them up on every matched line
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        
+        for (Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+            
+            try {
+                
+                MethodHandle handle = lookup.findVirtual(UrT42Parser.class, "on" + entry.getKey(), MethodLineHandler.TYPE);
+                this.addLineHandler(getPatternKeyword(entry.getValue()), entry.getValue(), new MethodLineHandler(handle.bindTo(this)));
+                
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                
+                // the log line will be silently discarded
+                this.log.debug("No handler available for " + entry.getKey() + " log lines");
+                
+            }
+            
+        }
+        
+        for (Map.Entry<String, String> entry : grammarRules.entrySet()) {
+            
+            try {
+                
+                MethodHandle handle = lookup.findVirtual(UrT42Parser.class, "on" + entry.getKey(), MethodLogLineHandler.TYPE);
+                this.addGrammarRule(entry.getKey(), entry.getValue(), new MethodLogLineHandler(handle.bindTo(this)));
+                
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                
+                // the log line will be silently discarded
+                this.log.debug("No handler available for " + entry.getKey() + " log lines");
+                
+            }
+            
+        }
 
         this.log.debug("Urban Terror 4.2 parser initialized");
         
@@ -580,6 +736,133 @@ public class UrT42Parser implements Parser {
     }
     
     
+    /**
+     * Return the game time (in seconds) of the given log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @return The game time (in seconds) of the given log line or 
+     *         <tt>-1</tt> if the log line is not timestamped
+     **/
+    public int getGameTime(String line) {
+        
+        // 0:00 ClientConnect: 0
+        // 125:57 Kill: 14 4 21: Fenix killed Fapking by UT_MOD_PSG1
+        
+        int i = 0;
+        int length = line.length();
+        int minutes = 0;
+        int seconds = 0;
+        
+        while ((i < length) && (line.charAt(i) == ' '))
+            i++;
+        
+        int start = i;
+        
+        while ((i < length) && (line.charAt(i) >= '0') && (line.charAt(i) <= '9'))
+            minutes = minutes * 10 + (line.charAt(i++) - '0');
+        
+        if ((i == start) || (i == length) || (line.charAt(i++) != ':'))
+            return -1;
+        
+        start = i;
+        
+        while ((i < length) && (line.charAt(i) >= '0') && (line.charAt(i) <= '9'))
+            seconds = seconds * 10 + (line.charAt(i++) - '0');
+        
+        if (i == start)
+            return -1;
+        
+        return minutes * 60 + seconds;
+        
+    }
+    
+    
+    /**
+     * Return the number of events generated since the parser has been initialized
+     * 
+     * @author Daniele Pantaleone
+     * @return The number of events generated since the parser has been initialized
+     **/
+    public long getEventCount() {
+        return this.events.get();
+    }
+    
+    
+    /**
+     * Publish the summary of the hits collected by the <tt>DamageCoalescer</tt>
+     * 
+     * @author Daniele Pantaleone
+     * @throws InterruptedException If the <tt>Thread</tt> is interrupted while waiting for space in the bus
+     **/
+    private void flushDamage() throws InterruptedException {
+        
+        if (this.coalescer == null)
+            return;
+        
+        for (ClientDamageSummaryEvent event : this.coalescer.flush()) {
+            
+            this.publish(event);
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] ClientDamageSummaryEvent [ attacker : " + event.getClient().getSlot() + 
+                                                                " | victim : " + event.getVictim().getSlot() + 
+                                                                " | mod : " + event.getMod().name() + 
+                                                                " | hitlocation : " + event.getHitLocation().name() + 
+                                                                " | team : " + event.isTeamDamage() + 
+                                                                " | hits : " + event.getHits() + " ]");
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Push an <tt>Event</tt> in the <tt>Event</tt> bus
+     * 
+     * @author Daniele Pantaleone
+     * @param  event The <tt>Event</tt> to be pushed in the <tt>Event</tt> bus
+     * @throws InterruptedException If the <tt>Thread</tt> is interrupted while waiting for space in the bus
+     **/
+    private void publish(Event event) throws InterruptedException {
+        
+        // nobody would receive this event: the client state
+        // has already been updated by the calling handler
+        if (this.subscriptions != null && !this.subscriptions.hasSubscribers(event.getClass()))
+            return;
+        
+        this.eventBus.put(event);
+        this.events.incrementAndGet();
+        
+    }
+    
+    
+    /**
+     * Tells whether log lines starting with the given keyword are worth parsing.
+     * Lines which only generate events are not if none of their events has
+     * live subscribers: all the other lines also keep the client state updated
+     * 
+     * @author Daniele Pantaleone
+     * @param  keyword The lowercase keyword of the log line
+     * @return <tt>true</tt> if the log line has to be parsed, <tt>false</tt> otherwise
+     **/
+    private boolean isWanted(String keyword) {
+        
+        if (this.subscriptions == null)
+            return true;
+        
+        Class<?>[] events = eventsByKeyword.get(keyword);
+        if (events == null)
+            return true;
+        
+        for (Class<?> event : events)
+            if (this.subscriptions.hasSubscribers(event))
+                return true;
+        
+        return false;
+        
+    }
+    
+    
     //////////////////////////
     // BEGIN HELPER METHODS //
     //////////////////////////
@@ -604,7 +887,7 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            this.eventBus.put(new ClientBombDefusedEvent(client));
+            this.publish(new ClientBombDefusedEvent(client));
             this.log.trace("[EVENT] ClientBombDefusedEvent [ client : " + client.getSlot() + " ]");
             
         } catch (NullPointerException | InterruptedException e) {        
@@ -636,7 +919,7 @@ public class UrT42Parser implements Parser {
              // Check to have a proper client object before the event generation
              checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-             this.eventBus.put(new ClientBombHolderEvent(client));
+             this.publish(new ClientBombHolderEvent(client));
              this.log.trace("[EVENT] ClientBombHolderEvent [ client : " + client.getSlot() + " ]");
             
          } catch (NullPointerException | InterruptedException e) {            
@@ -668,7 +951,7 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            this.eventBus.put(new ClientBombPlantedEvent(client));
+            this.publish(new ClientBombPlantedEvent(client));
             this.log.trace("[EVENT] ClientBombPlantedEvent [ client : " + client.getSlot() + " ]");
             
         } catch (NullPointerException | InterruptedException e) {
@@ -700,18 +983,20 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            String type = matcher.group("type");
-            String data = matcher.group("data") != null && !matcher.group("data").isEmpty() ? matcher.group("data") : null;
+            // groups 2 and 3 are (?<type>) and (?<data>): the Callvote
+            // object is built only if a subscriber asks for it
+            LineSlice type = getSlice(matcher, 2);
+            LineSlice data = getSlice(matcher, 3);
             
             // Check to have at least the callvote type
             checkNotNull(type, "could not retrieve callvote type");
             
-            Callvote callvote = new Callvote.Builder(client, type)
-                                            .data(data)
-                                            .build();
+            if (data != null && data.isEmpty())
+                data = null;
             
-            this.eventBus.put(new ClientCallvoteEvent(client, callvote));
-            this.log.trace("[EVENT] ClientCallvoteEvent [ client : " + client.getSlot() + " | type : " + callvote.getType() + " | data : " + callvote.getData() + " ]");
+            this.publish(new ClientCallvoteEvent(client, type, data));
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] ClientCallvoteEvent [ client : " + client.getSlot() + " | type : " + type + " | data : " + data + " ]");
             
         } catch (NullPointerException | InterruptedException e) {
             
@@ -742,7 +1027,7 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            this.eventBus.put(new ClientJoinEvent(client));
+            this.publish(new ClientJoinEvent(client));
             this.log.trace("[EVENT] ClientJoinEvent [ client : " + client.getSlot() + " ]");
             
         } catch (NullPointerException | InterruptedException e)  {
@@ -810,12 +1095,29 @@ public class UrT42Parser implements Parser {
         try {
             
             int slot = Integer.parseInt(matcher.group("slot"));
-            Client client = this.clientCtl.removeBySlot(slot);
+            final Client client = this.clientCtl.removeBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            this.eventBus.put(new ClientDisconnectEvent(client));
+            final ListenableFuture<Client> future = this.connecting.get(slot);
+            
+            if (future != null) {
+                
+                // the client is still being authenticated: the event is generated
+                // after the ClientConnectEvent and carries the authenticated client
+                this.authStage.submit(slot, new Callable<Void>() {
+                    public Void call() throws InterruptedException {
+                        UrT42Parser.this.publish(new ClientDisconnectEvent(UrT42Parser.getClient(future, client)));
+                        return null;
+                    }
+                });
+                
+                return;
+                
+            }
+            
+            this.publish(new ClientDisconnectEvent(client));
             this.log.trace("[EVENT] ClientDisconnectEvent [ client : " + client.getSlot() + " ]");
             
         } catch (NullPointerException | InterruptedException e)  {
@@ -832,33 +1134,33 @@ public class UrT42Parser implements Parser {
      * Helper method for ClientJumpRunCanceled
      * 
      * @author Daniele Pantaleone
-     * @param  matcher A <tt>Matcher</tt> object matching the log line
+     * @param  line The <tt>LogLine</tt> matched by the grammar
      **/
-    public void onClientJumpRunCanceled(Matcher matcher) {
+    public void onClientJumpRunCanceled(LogLine line) {
         
         // 0:00 ClientJumpRunCanceled: 0 - way: 2
         // 0:00 ClientJumpRunCanceled: 0 - way: 2 - attempt: 1 of 5
         
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
+            int slot = line.getInt("slot");
             Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            int way = Integer.parseInt(matcher.group("way"));
-            Integer anum = Integer.valueOf(matcher.group("anum"));
-            Integer amax = Integer.valueOf(matcher.group("amax"));
+            int way = line.getInt("way");
+            Integer anum = line.has("anum") ? Integer.valueOf(line.getInt("anum")) : null;
+            Integer amax = line.has("amax") ? Integer.valueOf(line.getInt("amax")) : null;
             
            if (anum != null && amax != null) {
-               this.eventBus.put(new ClientJumpRunCanceledEvent(client, way, anum, amax));
+               this.publish(new ClientJumpRunCanceledEvent(client, way, anum, amax));
                this.log.trace("[EVENT] ClientJumpRunCanceledEvent [ client : " + client.getSlot() + 
                                                                 " | way : " + way + 
                                                                 " | attempt_num : " + anum + 
                                                                 " | attempt_max : " + amax + " ]");
            } else {
-               this.eventBus.put(new ClientJumpRunCanceledEvent(client, way));
+               this.publish(new ClientJumpRunCanceledEvent(client, way));
                this.log.trace("[EVENT] ClientJumpRunCanceledEvent [ client : " + client.getSlot() + 
                                                                 " | way : " + way + " ]");
            }
@@ -877,33 +1179,33 @@ public class UrT42Parser implements Parser {
      * Helper method for ClientJumpRunStarted
      * 
      * @author Daniele Pantaleone
-     * @param  matcher A <tt>Matcher</tt> object matching the log line
+     * @param  line The <tt>LogLine</tt> matched by the grammar
      **/
-    public void onClientJumpRunStarted(Matcher matcher) {
+    public void onClientJumpRunStarted(LogLine line) {
        
         // 0:00 ClientJumpRunStarted: 0 - way: 2
         // 0:00 ClientJumpRunStarted: 0 - way: 2 - attempt: 1 of 5
         
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
+            int slot = line.getInt("slot");
             Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            int way = Integer.parseInt(matcher.group("way"));
-            Integer anum = Integer.valueOf(matcher.group("anum"));
-            Integer amax = Integer.valueOf(matcher.group("amax"));
+            int way = line.getInt("way");
+            Integer anum = line.has("anum") ? Integer.valueOf(line.getInt("anum")) : null;
+            Integer amax = line.has("amax") ? Integer.valueOf(line.getInt("amax")) : null;
             
            if (anum != null && amax != null) {
-               this.eventBus.put(new ClientJumpRunStartedEvent(client, way, anum, amax));
+               this.publish(new ClientJumpRunStartedEvent(client, way, anum, amax));
                this.log.trace("[EVENT] ClientJumpRunStartedEvent [ client : " + client.getSlot() + 
                                                                " | way : " + way + 
                                                                " | attempt_num : " + anum + 
                                                                " | attempt_max : " + amax + " ]");
            } else {
-               this.eventBus.put(new ClientJumpRunStartedEvent(client, way));
+               this.publish(new ClientJumpRunStartedEvent(client, way));
                this.log.trace("[EVENT] ClientJumpRunStartedEvent [ client : " + client.getSlot() + 
                                                                " | way : " + way + " ]");
            }
@@ -922,35 +1224,35 @@ public class UrT42Parser implements Parser {
      * Helper method for ClientJumpRunStopped
      * 
      * @author Daniele Pantaleone
-     * @param  matcher A <tt>Matcher</tt> object matching the log line
+     * @param  line The <tt>LogLine</tt> matched by the grammar
      **/
-    public void onClientJumpRunStopped(Matcher matcher) {
+    public void onClientJumpRunStopped(LogLine line) {
         
         // 0:00 ClientJumpRunStopped: 0 - way: 2 - time: 4850
         // 0:00 ClientJumpRunStopped: 0 - way: 2 - time: 4850 - attempt: 1 of 5
         
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
+            int slot = line.getInt("slot");
             Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            int way = Integer.parseInt(matcher.group("way"));
-            int wtime = Integer.parseInt(matcher.group("wtime"));
-            Integer anum = Integer.valueOf(matcher.group("anum"));
-            Integer amax = Integer.valueOf(matcher.group("amax"));
+            int way = line.getInt("way");
+            int wtime = line.getInt("wtime");
+            Integer anum = line.has("anum") ? Integer.valueOf(line.getInt("anum")) : null;
+            Integer amax = line.has("amax") ? Integer.valueOf(line.getInt("amax")) : null;
             
            if (anum != null && amax != null) {
-               this.eventBus.put(new ClientJumpRunStoppedEvent(client, way, wtime, anum, amax));
+               this.publish(new ClientJumpRunStoppedEvent(client, way, wtime, anum, amax));
                this.log.trace("[EVENT] ClientJumpRunStoppedEvent [ client : " + client.getSlot() + 
                                                                " | way : " + way + 
                                                                " | way_time : " + wtime +
                                                                " | attempt_num : " + anum + 
                                                                " | attempt_max : " + amax + " ]");
            } else {
-               this.eventBus.put(new ClientJumpRunStoppedEvent(client, way, wtime));
+               this.publish(new ClientJumpRunStoppedEvent(client, way, wtime));
                this.log.trace("[EVENT] ClientJumpRunStoppedEvent [ client : " + client.getSlot() + 
                                                                " | way : " + way + 
                                                                " | way_time : " + wtime +" ]");
@@ -970,26 +1272,26 @@ public class UrT42Parser implements Parser {
      * Helper method for ClientLoadPosition
      * 
      * @author Daniele Pantaleone
-     * @param  matcher A <tt>Matcher</tt> object matching the log line
+     * @param  line The <tt>LogLine</tt> matched by the grammar
      **/
-    public void onClientLoadPosition(Matcher matcher) {
+    public void onClientLoadPosition(LogLine line) {
         
         // 0:00 ClientLoadPosition: 0 - -7558.291015 - -79.125061 - 160.125000
         // 0:00 ClientLoadPosition: 0 - 758.278015 - 12.125061 - 10.405003
         
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
+            int slot = line.getInt("slot");
             Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            float x = Float.parseFloat(matcher.group("x"));
-            float y = Float.parseFloat(matcher.group("y"));
-            float z = Float.parseFloat(matcher.group("z"));
+            float x = line.getFloat("x");
+            float y = line.getFloat("y");
+            float z = line.getFloat("z");
             
-            this.eventBus.put(new ClientPositionLoadEvent(client, x, y, z));
+            this.publish(new ClientPositionLoadEvent(client, x, y, z));
             this.log.trace("[EVENT] ClientPositionLoadEvent [ client : " + client.getSlot() + 
                                                           " | x : " + x + 
                                                           " | y : " + y + 
@@ -1010,26 +1312,26 @@ public class UrT42Parser implements Parser {
      * Helper method for ClientSavePosition
      * 
      * @author Daniele Pantaleone
-     * @param  matcher A <tt>Matcher</tt> object matching the log line
+     * @param  line The <tt>LogLine</tt> matched by the grammar
      **/
-    public void onClientSavePosition(Matcher matcher) {
+    public void onClientSavePosition(LogLine line) {
         
         // 0:00 ClientSavePosition: 0 - -7558.291015 - -79.125061 - 160.125000
         // 0:00 ClientSavePosition: 0 - 758.278015 - 12.125061 - 10.405003
         
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
+            int slot = line.getInt("slot");
             Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            float x = Float.parseFloat(matcher.group("x"));
-            float y = Float.parseFloat(matcher.group("y"));
-            float z = Float.parseFloat(matcher.group("z"));
+            float x = line.getFloat("x");
+            float y = line.getFloat("y");
+            float z = line.getFloat("z");
             
-            this.eventBus.put(new ClientPositionSaveEvent(client, x, y, z));
+            this.publish(new ClientPositionSaveEvent(client, x, y, z));
             this.log.trace("[EVENT] ClientPositionSaveEvent [ client : " + client.getSlot() + 
                                                           " | x : " + x + 
                                                           " | y : " + y + 
@@ -1057,23 +1359,24 @@ public class UrT42Parser implements Parser {
         // 0:00 ClientUserinfo: 9 \ip\93.84.143.218:27960\name\DsP**Unhitman....
         // 0:00 ClientUserinfo: 8 \ip\87.166.159.201:27960\name\SickHippster!nc....
         
-        int slot = Integer.parseInt(matcher.group("slot"));
-        Map<String, String> userinfo = this.parseInfoString(matcher.group("infostring"));
+        final int slot = Integer.parseInt(matcher.group("slot"));
+        InfoString infostring = this.infoString.parse(matcher.group("infostring"));
         
         try {
             
             // check if this is a new client connection
             Client client = checkNotNull(this.clientCtl.getBySlot(slot));
+            String gear = infostring.get(InfoString.GEAR);
            
             // checking for gear change
-            if (userinfo.containsKey("gear")) {
+            if (gear != null) {
 
-                if (client.getGear() == null || !client.getGear().equals(userinfo.get("gear"))) {
+                if (client.getGear() == null || !client.getGear().equals(gear)) {
                     
                     try {
                         
-                        client.setGear(userinfo.get("gear"));
-                        this.eventBus.put(new ClientGearChangeEvent(client));
+                        client.setGear(gear);
+                        this.publish(new ClientGearChangeEvent(client));
                         this.log.trace("[parser] ClientGearChangeEvent [ client : " + client.getSlot() + " ]");
                         
                     } catch (InterruptedException e) {
@@ -1091,28 +1394,85 @@ public class UrT42Parser implements Parser {
             
             // we couldn't retrieve a client object so we will
             // assume that this is a new client connection to the server
+            // so we need the whole userinfo to authenticate the client
+            final Map<String, String> userinfo = infostring.getMap();
             
-            Client client = null;
+            if (this.authStage == null || (!(userinfo.containsKey("cl_guid")) && (userinfo.containsKey("skill")))) {
+                
+                // bots don't need any authentication
+                this.connectClient(slot, userinfo, null);
+                return;
+                
+            }
+            
+            try {
+                
+                // authenticating requires a rcon round trip and storage lookups
+                // so it's done in the auth stage: meanwhile a placeholder is bound 
+                // to the slot so the following log lines can find the client
+                final Client placeholder = new Client.Builder(InetAddress.getByName(userinfo.get("ip").split(":", 2)[0]), userinfo.get("cl_guid"))
+                                                     .group(this.groupCtl.getByKeyword("guest"))
+                                                     .slot(slot)
+                                                     .name(userinfo.get("name"))
+                                                     .gear(userinfo.get("gear"))
+                                                     .team(userinfo.containsKey("team") ? this.getTeamByName(userinfo.get("team")) : null)
+                                                     .build();
+                
+                this.clientCtl.add(placeholder);
+                
+                final ListenableFuture<Client> future = this.authStage.submit(slot, new Callable<Client>() {
+                    public Client call() {
+                        return UrT42Parser.this.connectClient(slot, userinfo, placeholder);
+                    }
+                });
+                
+                this.connecting.put(slot, future);
+                future.addListener(new Runnable() {
+                    public void run() {
+                        UrT42Parser.this.connecting.remove(slot, future);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                
+            } catch (UnknownHostException | ClassNotFoundException | SQLException | IndexOutOfBoundsException e) {
+                
+                // Logging the Exception
+                this.log.error("[EVENT] ClientConnectEvent", e);
+                
+            }
+                      
+        }
+    
+    }
+    
+    
+    /**
+     * Authenticate a connecting client and generate the <tt>ClientConnectEvent</tt>.<br>
+     * When a placeholder is given, the authenticated <tt>Client</tt> takes its place 
+     * in the online client list together with the state tracked in the meantime
+     * 
+     * @author Daniele Pantaleone
+     * @param  slot The connecting <tt>Client</tt> slot
+     * @param  userinfo The parsed <tt>Client</tt> userinfo
+     * @param  placeholder The <tt>Client</tt> bound to the slot while 
+     *                     authenticating or <tt>null</tt> if there is none
+     * @return The connected <tt>Client</tt> or <tt>null</tt> if the connection failed
+     **/
+    private Client connectClient(int slot, Map<String, String> userinfo, Client placeholder) {
+        
+        Client client = null;
+        
+        try {
             
             if (!(userinfo.containsKey("cl_guid")) && (userinfo.containsKey("skill"))) {
                 
-                try {
-                    
-                    // a bot is connecting to the server
-                    // we'll handle this in a different way
-                    
-                    client = new Client.Builder(InetAddress.getByName("0.0.0.0"), "BOT_" + slot)
-                                       .bot(true)
-                                       .build();
-                    
-                    this.log.debug("Client connecting on slot " + slot + " has been detected as a BOT");
-                    
-                } catch (UnknownHostException e2) {
-                    
-                    this.log.error("Could not generate 'ClientConnectEvent'", e2);
-                    return;
+                // a bot is connecting to the server
+                // we'll handle this in a different way
                 
-                }
+                client = new Client.Builder(InetAddress.getByName("0.0.0.0"), "BOT_" + slot)
+                                   .bot(true)
+                                   .build();
+                
+                this.log.debug("Client connecting on slot " + slot + " has been detected as a BOT");
                 
             } else {
                 
@@ -1138,13 +1498,20 @@ public class UrT42Parser implements Parser {
                     }
                     
                 }
-
+    
             }
             
+            client.setSlot(slot);
             
-            try {
+            if (placeholder != null) {
                 
-                client.setSlot(slot);
+                // the placeholder has been kept up to 
+                // date by the log lines parsed meanwhile
+                client.setName(placeholder.getName());
+                client.setGear(placeholder.getGear());
+                client.setTeam(placeholder.getTeam());
+                
+            } else {
                 
                 if (userinfo.containsKey("name"))
                     client.setName(userinfo.get("name"));
@@ -1154,26 +1521,32 @@ public class UrT42Parser implements Parser {
                 
                 if (userinfo.containsKey("team"))    
                     client.setTeam(getTeamByName(userinfo.get("team")));
-                
-                // update the number of connections just if it's a new client or he disconnected more than 1 hour ago
-                if (client.getTimeEdit() == null || Hours.hoursBetween(client.getTimeEdit(), new DateTime()).getHours() > 1)
-                    client.setConnections(client.getConnections() + 1);
-
+            
+            }
+            
+            // update the number of connections just if it's a new client or he disconnected more than 1 hour ago
+            if (client.getTimeEdit() == null || Hours.hoursBetween(client.getTimeEdit(), new DateTime()).getHours() > 1)
+                client.setConnections(client.getConnections() + 1);
+            
+            if (placeholder == null)
                 this.clientCtl.add(client);
-                this.clientCtl.save(client);
-                
-                this.eventBus.put(new ClientConnectEvent(client));
-                this.log.trace("[EVENT] ClientConnectEvent [ client : " + slot + " ]");
-                
-            } catch (UnknownHostException | ClassNotFoundException | SQLException | InterruptedException e) {
-                
-                // Logging the Exception
-                this.log.error("[EVENT] ClientConnectEvent", e);
+            else if (!this.clientCtl.replace(placeholder, client))
+                this.log.debug("Client on slot " + slot + " disconnected before being authenticated");
+            
+            this.clientCtl.save(client);
+            
+            this.publish(new ClientConnectEvent(client));
+            this.log.trace("[EVENT] ClientConnectEvent [ client : " + slot + " ]");
+            
+        } catch (UnknownHostException | ClassNotFoundException | SQLException | InterruptedException e) {
+            
+            // Logging the Exception
+            this.log.error("[EVENT] ClientConnectEvent", e);
 
-            }
-                      
         }
-    
+        
+        return client;
+        
     }
     
     
@@ -1197,29 +1570,29 @@ public class UrT42Parser implements Parser {
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
             // Parsing userinfo string so we can generate our custom events
-            Map<String, String> userinfo = this.parseInfoString(matcher.group("infostring"));
+            InfoString infostring = this.infoString.parse(matcher.group("infostring"));
             
             // Checking name change
-            if (userinfo.containsKey("n")) {
+            if (infostring.containsKey(InfoString.SHORT_NAME)) {
                 
-                String name = userinfo.get("n").replaceAll("\\^[0-9]{1}", "");
+                String name = infostring.get(InfoString.SHORT_NAME).replaceAll("\\^[0-9]{1}", "");
                 if (!client.getName().toLowerCase().equals(name.toLowerCase())) {
                     client.setName(name);
-                    this.eventBus.put(new ClientNameChangeEvent(client));
+                    this.publish(new ClientNameChangeEvent(client));
                     this.log.trace("[EVENT] ClientNameChangeEvent [ client : " + client.getSlot() + " ]");
                 }
             }
             
             // Checking team change
-            if (userinfo.containsKey("t")) {
+            if (infostring.containsKey(InfoString.SHORT_TEAM)) {
                    
                 try {
                     
-                    Team team = this.getTeamByCode(Integer.parseInt(userinfo.get("t")));
+                    Team team = this.getTeamByCode(Integer.parseInt(infostring.get(InfoString.SHORT_TEAM)));
                     
                     if (client.getTeam() != team) {
                         client.setTeam(team);
-                        this.eventBus.put(new ClientTeamChangeEvent(client));
+                        this.publish(new ClientTeamChangeEvent(client));
                         this.log.trace("[EVENT] ClientTeamChangeEvent [ client : " + client.getSlot() + " ]");
                     }
                     
@@ -1264,17 +1637,17 @@ public class UrT42Parser implements Parser {
             
                 case 0:
                     checkNotNull(client, "[EVENT] ClientFlagDroppedEvent: could not retrieve client on slot %s", slot);
-                    this.eventBus.put(new ClientFlagDroppedEvent(client));
+                    this.publish(new ClientFlagDroppedEvent(client));
                     this.log.trace("[EVENT] ClientFlagDroppedEvent [ client : " + client.getSlot() + " ]");
                     break;
                 case 1:
                     checkNotNull(client, "[EVENT] ClientFlagReturnedEvent: could not retrieve client on slot %s", slot);
-                    this.eventBus.put(new ClientFlagReturnedEvent(client));
+                    this.publish(new ClientFlagReturnedEvent(client));
                     this.log.trace("[EVENT] ClientFlagReturnedEvent [ client : " + client.getSlot() + " ]");
                     break;
                 case 2:
                     checkNotNull(client, "[EVENT] ClientFlagCapturedEvent: could not retrieve client on slot %s", slot);
-                    this.eventBus.put(new ClientFlagCapturedEvent(client));
+                    this.publish(new ClientFlagCapturedEvent(client));
                     this.log.trace("[EVENT] ClientFlagCapturedEvent [ client : " + client.getSlot() + " ]");
                     break;
             
@@ -1306,7 +1679,7 @@ public class UrT42Parser implements Parser {
         try {
             
             Team team = getTeamByName(matcher.group("team"));
-            this.eventBus.put(new TeamFlagReturnEvent(team));
+            this.publish(new TeamFlagReturnEvent(team));
             this.log.trace("[EVENT] TeamFlagReturnEvent [ team : " + team.name() + " ]");
         
         } catch (IndexOutOfBoundsException | InterruptedException e) {
@@ -1329,13 +1702,27 @@ public class UrT42Parser implements Parser {
         // 0:00 Hit: 12 7 1 19: [Gore]Pinhead hit Fapking in the Helmet
         // 0:00 Hit: 13 10 0 8: WizardOfGore hit Fenix in the Head
         
+        this.onHit(Integer.parseInt(matcher.group("victim")),
+                   Integer.parseInt(matcher.group("attacker")),
+                   Integer.parseInt(matcher.group("hitlocation")),
+                   Integer.parseInt(matcher.group("weapon")));
+        
+    }
+    
+    
+    /**
+     * Helper method for Hit
+     * 
+     * @author Daniele Pantaleone
+     * @param  vslot The victim <tt>Client</tt> slot
+     * @param  aslot The attacker <tt>Client</tt> slot
+     * @param  hcode The <tt>Hitlocation</tt> code
+     * @param  wcode The <tt>Mod</tt> hit code
+     **/
+    private void onHit(int vslot, int aslot, int hcode, int wcode) {
+        
         try {
             
-            int vslot = Integer.parseInt(matcher.group("victim"));
-            int aslot = Integer.parseInt(matcher.group("attacker"));
-            int hcode = Integer.parseInt(matcher.group("hitlocation"));
-            int wcode = Integer.parseInt(matcher.group("weapon"));
-            
             Client vclient = this.clientCtl.getBySlot(vslot);
             Client aclient = this.clientCtl.getBySlot(aslot);
             Hitlocation hitloc = this.getHitlocationByCode(hcode);
@@ -1344,35 +1731,51 @@ public class UrT42Parser implements Parser {
             if (aclient == vclient) {
                 
                 checkNotNull(vclient, "[EVENT] ClientDamageSelfEvent: could not retrieve victim client on slot %s", vslot);
-                this.eventBus.put(new ClientDamageSelfEvent(vclient, mod, hitloc));
-                this.log.trace("[EVENT] ClientDamageSelfEvent [ client : " + vclient.getSlot() + 
-                                                            " | mod : " + mod.name() + 
-                                                            " | hitlocation : " + hitloc.name() + " ]");
+                this.publish(new ClientDamageSelfEvent(vclient, mod, hitloc));
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientDamageSelfEvent [ client : " + vclient.getSlot() + 
+                                                                " | mod : " + mod.name() + 
+                                                                " | hitlocation : " + hitloc.name() + " ]");
                 
             } else if ((aclient.getTeam() == vclient.getTeam()) && (aclient.getTeam() != Team.SPECTATOR) && (aclient.getTeam() != Team.FREE)) {
                 
                 checkNotNull(vclient, "[EVENT] ClientDamageTeamEvent: could not retrieve victim client on slot %s", vslot);
                 checkNotNull(aclient, "[EVENT] ClientDamageTeamEvent: could not retrieve attacker client on slot %s", vslot);
-                this.eventBus.put(new ClientDamageTeamEvent(aclient, vclient, mod, hitloc));
-                this.log.trace("[EVENT] ClientDamageTeamEvent [ attacker : " + aclient.getSlot() + 
-                                                            " | victim : " + vclient.getSlot() + 
-                                                            " | mod : " + mod.name() + 
-                                                            " | hitlocation : " + hitloc.name() + " ]");
+                
+                if (this.coalescer != null)
+                    this.coalescer.add(aclient, vclient, mod, hitloc, true);
+                else
+                    this.publish(new ClientDamageTeamEvent(aclient, vclient, mod, hitloc));
+                
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientDamageTeamEvent [ attacker : " + aclient.getSlot() + 
+                                                                " | victim : " + vclient.getSlot() + 
+                                                                " | mod : " + mod.name() + 
+                                                                " | hitlocation : " + hitloc.name() + " ]");
                 
                 
             } else {
                 
                 checkNotNull(vclient, "[EVENT] ClientDamageEvent: could not retrieve victim client on slot %s", vslot);
                 checkNotNull(aclient, "[EVENT] ClientDamageEvent: could not retrieve attacker client on slot %s", vslot);
-                this.eventBus.put(new ClientDamageEvent(aclient, vclient, mod, hitloc));
-                this.log.trace("[EVENT] ClientDamageEvent [ attacker : " + aclient.getSlot() + 
-                                                        " | victim : " + vclient.getSlot() + 
-                                                        " | mod : " + mod.name() + 
-                                                        " | hitlocation : " + hitloc.name() + " ]");
+                
+                if (this.coalescer != null)
+                    this.coalescer.add(aclient, vclient, mod, hitloc, false);
+                else
+                    this.publish(new ClientDamageEvent(aclient, vclient, mod, hitloc));
+                
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientDamageEvent [ attacker : " + aclient.getSlot() + 
+                                                            " | victim : " + vclient.getSlot() + 
+                                                            " | mod : " + mod.name() + 
+                                                            " | hitlocation : " + hitloc.name() + " ]");
                 
                 
             }
             
+            if (this.coalescer != null && this.coalescer.isDue())
+                this.flushDamage();
+            
         } catch (NullPointerException | IndexOutOfBoundsException | InterruptedException e) {
             
             // Logging the Exception
@@ -1396,9 +1799,10 @@ public class UrT42Parser implements Parser {
         
         try {
         
-            String infostring = matcher.group("infostring");            
-            this.eventBus.put(new GameStartEvent());
-            this.log.trace("[EVENT] GameStartEvent [ data : " + infostring + " ]");       
+            this.flushDamage();
+            this.publish(new GameStartEvent());
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] GameStartEvent [ data : " + matcher.group("infostring") + " ]");
         
         } catch (InterruptedException e) {
             
@@ -1423,9 +1827,10 @@ public class UrT42Parser implements Parser {
         
         try {
             
-            String infostring = matcher.group("infostring");            
-            this.eventBus.put(new GameRoundStartEvent());
-            this.log.trace("[EVENT] GameRoundStartEvent [ data : " + infostring + " ]");       
+            this.flushDamage();
+            this.publish(new GameRoundStartEvent());
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] GameRoundStartEvent [ data : " + matcher.group("infostring") + " ]");
         
         } catch (InterruptedException e) {
             
@@ -1448,17 +1853,31 @@ public class UrT42Parser implements Parser {
         // 0:00 Item: 0 ut_item_deagle
         // 0:00 Item: 1 ut_item_medkit
         
+        this.onItem(Integer.parseInt(matcher.group("slot")), matcher.group("item"));
+        
+    }
+    
+    
+    /**
+     * Helper method for Item
+     * 
+     * @author Daniele Pantaleone
+     * @param  slot The <tt>Client</tt> slot
+     * @param  name The <tt>Item</tt> name
+     **/
+    private void onItem(int slot, String name) {
+        
         try {
             
-            int slot = Integer.parseInt(matcher.group("slot"));
-            Client client = this.clientCtl.removeBySlot(slot);
+            Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            Item item = getItemByName(matcher.group("item"));
-            this.eventBus.put(new ClientItemPickupEvent(client, item));
-            this.log.trace("[EVENT] ClientItemPickupEvent [ client : " + client.getSlot() + " | item : " + item.name() + " ]");
+            Item item = getItemByName(name);
+            this.publish(new ClientItemPickupEvent(client, item));
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] ClientItemPickupEvent [ client : " + client.getSlot() + " | item : " + item.name() + " ]");
             
         } catch (NullPointerException | IndexOutOfBoundsException | InterruptedException e) {
             
@@ -1481,11 +1900,27 @@ public class UrT42Parser implements Parser {
         // 0:00 Kill: 0 1 16: Fenix killed WizardOfGore by UT_MOD_SPAS
         // 0:00 Kill: 14 4 21: Fenix killed Fapking by UT_MOD_PSG1
         
+        this.onKill(Integer.parseInt(matcher.group("attacker")),
+                    Integer.parseInt(matcher.group("victim")),
+                    Integer.parseInt(matcher.group("weapon")));
+        
+    }
+    
+    
+    /**
+     * Helper method for Kill
+     * 
+     * @author Daniele Pantaleone
+     * @param  aslot The attacker <tt>Client</tt> slot
+     * @param  vslot The victim <tt>Client</tt> slot
+     * @param  wcode The <tt>Mod</tt> kill code
+     **/
+    private void onKill(int aslot, int vslot, int wcode) {
+        
         try {
             
-            int vslot = Integer.parseInt(matcher.group("victim"));
-            int aslot = Integer.parseInt(matcher.group("attacker"));
-            int wcode = Integer.parseInt(matcher.group("weapon"));
+            // hits leading to the kill come first
+            this.flushDamage();
             
             Client vclient = this.clientCtl.getBySlot(vslot);
             Client aclient = this.clientCtl.getBySlot(aslot);
@@ -1512,9 +1947,10 @@ public class UrT42Parser implements Parser {
                 case MOD_TRIGGER_HURT:
                 case UT_MOD_SPLODED:
                     
-                    this.eventBus.put(new ClientKillSelfEvent(vclient, mod));
-                    this.log.trace("[EVENT] ClientKillSelfEvent [ victim : " + vclient.getSlot() + 
-                                                              " | mod : " + mod.name() + " ]");
+                    this.publish(new ClientKillSelfEvent(vclient, mod));
+                    if (this.log.isTraceEnabled())
+                        this.log.trace("[EVENT] ClientKillSelfEvent [ victim : " + vclient.getSlot() + 
+                                                                  " | mod : " + mod.name() + " ]");
                     
                     break;
     
@@ -1522,23 +1958,26 @@ public class UrT42Parser implements Parser {
                     
                     if ((aclient == vclient) && (aclient.getTeam() != Team.SPECTATOR)) {
                         
-                        this.eventBus.put(new ClientKillSelfEvent(vclient, mod));
-                        this.log.trace("[EVENT] ClientKillSelfEvent [ victim : " + vclient.getSlot() + 
-                                                                  " | mod : " + mod.name() + " ]");
+                        this.publish(new ClientKillSelfEvent(vclient, mod));
+                        if (this.log.isTraceEnabled())
+                            this.log.trace("[EVENT] ClientKillSelfEvent [ victim : " + vclient.getSlot() + 
+                                                                      " | mod : " + mod.name() + " ]");
                         
                     } else if ((aclient.getTeam() == vclient.getTeam()) && (aclient.getTeam() != Team.SPECTATOR) && (aclient.getTeam() != Team.FREE)) {
                         
-                        this.eventBus.put(new ClientKillTeamEvent(aclient, vclient, mod));
-                        this.log.trace("[EVENT] ClientKillTeamEvent [ victim : " + vclient.getSlot() + 
-                                                                  " | attacker : " + aclient.getSlot() + 
-                                                                  " | mod : " + mod.name() + " ]");
+                        this.publish(new ClientKillTeamEvent(aclient, vclient, mod));
+                        if (this.log.isTraceEnabled())
+                            this.log.trace("[EVENT] ClientKillTeamEvent [ victim : " + vclient.getSlot() + 
+                                                                      " | attacker : " + aclient.getSlot() + 
+                                                                      " | mod : " + mod.name() + " ]");
                         
                     } else {
                         
-                        this.eventBus.put(new ClientKillEvent(aclient, vclient, mod));
-                        this.log.trace("[EVENT] ClientKillEvent [ victim : " + vclient.getSlot() + 
-                                                              " | attacker : " + aclient.getSlot() + 
-                                                              " | mod : " + mod.name() + " ]");
+                        this.publish(new ClientKillEvent(aclient, vclient, mod));
+                        if (this.log.isTraceEnabled())
+                            this.log.trace("[EVENT] ClientKillEvent [ victim : " + vclient.getSlot() + 
+                                                                  " | attacker : " + aclient.getSlot() + 
+                                                                  " | mod : " + mod.name() + " ]");
                     
                     }
                     
@@ -1571,22 +2010,26 @@ public class UrT42Parser implements Parser {
         try {
             
             int slot = Integer.parseInt(matcher.group("slot"));
-            Client client = this.clientCtl.removeBySlot(slot);
+            Client client = this.clientCtl.getBySlot(slot);
             
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
             int msg_group = Integer.parseInt(matcher.group("group"));
             int msg_id = Integer.parseInt(matcher.group("id"));
-            String location = matcher.group("location");
-            String message = matcher.group("message");
             
-            this.eventBus.put(new ClientRadioEvent(client, msg_group, msg_id, location, message));
-            this.log.trace("[EVENT] ClientRadioEvent [ client : " + client.getSlot() + 
-                                                   " | msg_group : " + msg_group + 
-                                                   " | msg_id : " + msg_id + 
-                                                   " | location : " + location + 
-                                                   " | message : " + message + " ]");
+            // groups 4 and 5 are (?<location>) and (?<message>): they
+            // are decoded only if a subscriber asks for them
+            LineSlice location = getSlice(matcher, 4);
+            LineSlice message = getSlice(matcher, 5);
+            
+            this.publish(new ClientRadioEvent(client, msg_group, msg_id, location, message));
+            if (this.log.isTraceEnabled())
+                this.log.trace("[EVENT] ClientRadioEvent [ client : " + client.getSlot() + 
+                                                       " | msg_group : " + msg_group + 
+                                                       " | msg_id : " + msg_id + 
+                                                       " | location : " + location + 
+                                                       " | message : " + message + " ]");
             
         } catch (NullPointerException | InterruptedException e) {
             
@@ -1612,12 +2055,17 @@ public class UrT42Parser implements Parser {
         try {
             
             int slot = Integer.parseInt(matcher.group("slot"));
-            Client client = this.clientCtl.removeBySlot(slot);
+            Client client = this.clientCtl.getBySlot(slot);
             
-            if ((client == null) || (!client.getName().equals(matcher.group("name")))) {
+            // groups 2 and 3 are (?<name>) and (?<message>): the message
+            // is copied out of the log line only if a subscriber asks for it
+            LineSlice name = getSlice(matcher, 2);
+            LineSlice message = getSlice(matcher, 3).trim();
+            
+            if ((client == null) || (!name.contentEquals(client.getName()))) {
                 
                 // Well known UrT bug          
-                List<Client> collection = this.clientCtl.getByName(matcher.group("name"));
+                List<Client> collection = this.clientCtl.getByName(name.toString());
                 
                 if (collection.isEmpty() || collection.size() > 1)
                     throw new NullPointerException("could not retrieve client on slot " + slot);
@@ -1627,24 +2075,22 @@ public class UrT42Parser implements Parser {
             
             }
             
-            // Get the said sentence
-            String message = matcher.group("message").trim();
-            
-            if (message == null || message.isEmpty()) 
+            if (message.isEmpty()) 
                 throw new NullPointerException("could not retrieve message");
             
             // Check if an Orion command has been issued
-            if ((message.startsWith("!")) || (message.startsWith("@")) || (message.startsWith("&"))) {
+            if ((message.charAt(0) == '!') || (message.charAt(0) == '@') || (message.charAt(0) == '&')) {
             
                 // Say event matches command pattern
-                this.onClientCommand(client, message);
+                this.onClientCommand(client, message.toString());
             
             } else {
                 
                 // Normal client say event
-                this.eventBus.put(new ClientSayEvent(client, message));
-                this.log.trace("[EVENT] ClientSayEvent [ client : " + client.getSlot() + 
-                                                     " | message : " + message + " ]");
+                this.publish(new ClientSayEvent(client, message));
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientSayEvent [ client : " + client.getSlot() + 
+                                                         " | message : " + message + " ]");
             
             }
             
@@ -1673,13 +2119,18 @@ public class UrT42Parser implements Parser {
             
             int cslot = Integer.parseInt(matcher.group("slot"));
             int tslot = Integer.parseInt(matcher.group("target"));
-            Client client = this.clientCtl.removeBySlot(cslot);
-            Client target = this.clientCtl.removeBySlot(tslot);
+            Client client = this.clientCtl.getBySlot(cslot);
+            Client target = this.clientCtl.getBySlot(tslot);
+            
+            // groups 3 and 4 are (?<name>) and (?<message>): the message
+            // is copied out of the log line only if a subscriber asks for it
+            LineSlice name = getSlice(matcher, 3);
+            LineSlice message = getSlice(matcher, 4).trim();
             
-            if ((client == null) || (!client.getName().equals(matcher.group("name")))) {
+            if ((client == null) || (!name.contentEquals(client.getName()))) {
                 
                 // Well known UrT bug          
-                List<Client> collection = this.clientCtl.getByName(matcher.group("name"));
+                List<Client> collection = this.clientCtl.getByName(name.toString());
                 
                 if (collection.isEmpty() || collection.size() > 1)
                     throw new NullPointerException("could not retrieve client on slot " + cslot);
@@ -1692,25 +2143,23 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve target client on slot %s", tslot);
             
-            // Get the said sentence
-            String message = matcher.group("message").trim();
-            
-            if (message == null || message.isEmpty()) 
+            if (message.isEmpty()) 
                 throw new NullPointerException("could not retrieve message");
             
             // Check if an Orion command has been issued
-            if ((message.startsWith("!")) || (message.startsWith("@")) || (message.startsWith("&"))) {
+            if ((message.charAt(0) == '!') || (message.charAt(0) == '@') || (message.charAt(0) == '&')) {
             
                 // Say event matches command pattern
-                this.onClientCommand(client, message);
+                this.onClientCommand(client, message.toString());
             
             } else {
                 
                 // Normal client say private event
-                this.eventBus.put(new ClientSayPrivateEvent(client, target, message));
-                this.log.trace("[EVENT] ClientSayPrivateEvent [ client : " + client.getSlot() + 
-                                                            " | target : " + target.getSlot() + 
-                                                            " | message : " + message + " ]");
+                this.publish(new ClientSayPrivateEvent(client, target, message));
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientSayPrivateEvent [ client : " + client.getSlot() + 
+                                                                " | target : " + target.getSlot() + 
+                                                                " | message : " + message + " ]");
             
             }
             
@@ -1738,12 +2187,17 @@ public class UrT42Parser implements Parser {
         try {
             
             int slot = Integer.parseInt(matcher.group("slot"));
-            Client client = this.clientCtl.removeBySlot(slot);
+            Client client = this.clientCtl.getBySlot(slot);
             
-            if ((client == null) || (!client.getName().equals(matcher.group("name")))) {
+            // groups 2 and 3 are (?<name>) and (?<message>): the message
+            // is copied out of the log line only if a subscriber asks for it
+            LineSlice name = getSlice(matcher, 2);
+            LineSlice message = getSlice(matcher, 3).trim();
+            
+            if ((client == null) || (!name.contentEquals(client.getName()))) {
                 
                 // Well known UrT bug          
-                List<Client> collection = this.clientCtl.getByName(matcher.group("name"));
+                List<Client> collection = this.clientCtl.getByName(name.toString());
                 
                 if (collection.isEmpty() || collection.size() > 1)
                     throw new NullPointerException("could not retrieve client on slot " + slot);
@@ -1753,24 +2207,22 @@ public class UrT42Parser implements Parser {
             
             }
             
-            // Get the said sentence
-            String message = matcher.group("message").trim();
-            
-            if (message == null || message.isEmpty()) 
+            if (message.isEmpty()) 
                 throw new NullPointerException("could not retrieve message");
             
             // Check if an Orion command has been issued
-            if ((message.startsWith("!")) || (message.startsWith("@")) || (message.startsWith("&"))) {
+            if ((message.charAt(0) == '!') || (message.charAt(0) == '@') || (message.charAt(0) == '&')) {
             
                 // Say event matches command pattern
-                this.onClientCommand(client, message);
+                this.onClientCommand(client, message.toString());
             
             } else {
                 
                 // Normal client say team event
-                this.eventBus.put(new ClientSayTeamEvent(client, message));
-                this.log.trace("[EVENT] ClientSayTeamEvent [ client : " + client.getSlot() + 
-                                                         " | message : " + message + " ]");
+                this.publish(new ClientSayTeamEvent(client, message));
+                if (this.log.isTraceEnabled())
+                    this.log.trace("[EVENT] ClientSayTeamEvent [ client : " + client.getSlot() + 
+                                                             " | message : " + message + " ]");
             
             }
             
@@ -1797,7 +2249,8 @@ public class UrT42Parser implements Parser {
         
         try {
             
-            this.eventBus.put(new GameExitEvent());
+            this.flushDamage();
+            this.publish(new GameExitEvent());
             this.log.trace("[EVENT] GameExitEvent");
 
         } catch (InterruptedException e) {
@@ -1831,7 +2284,7 @@ public class UrT42Parser implements Parser {
                 // Check to have a proper client object before the event generation
                 checkNotNull(client, "could not retrieve client on slot %s", slot);
                 
-                this.eventBus.put(new SurvivorWinnerEvent(client));
+                this.publish(new SurvivorWinnerEvent(client));
                 this.log.trace("[EVENT] SurvivorWinnerEvent [ client : " + client.getSlot() + " ]");
                 
             } catch (NullPointerException | InterruptedException e) {
@@ -1846,7 +2299,7 @@ public class UrT42Parser implements Parser {
             try {
                 
                 Team team = this.getTeamByName(matcher.group("data"));
-                this.eventBus.put(new TeamSurvivorWinnerEvent(team));
+                this.publish(new TeamSurvivorWinnerEvent(team));
                 this.log.trace("[EVENT] TeamSurvivorWinnerEvent [ team : " + team.name() + " ]");
             
             } catch (IndexOutOfBoundsException | InterruptedException e) {
@@ -1881,7 +2334,7 @@ public class UrT42Parser implements Parser {
             // Check to have a proper client object before the event generation
             checkNotNull(client, "could not retrieve client on slot %s", slot);
             
-            this.eventBus.put(new ClientVoteEvent(client, data));
+            this.publish(new ClientVoteEvent(client, data));
             this.log.trace("[EVENT] ClientVoteEvent [ client : " + client.getSlot() + " | data : " + data + " ]");
             
         } catch (NullPointerException | InterruptedException e) {
@@ -1907,7 +2360,7 @@ public class UrT42Parser implements Parser {
         
         try {
             
-            this.eventBus.put(new GameWarmupEvent());
+            this.publish(new GameWarmupEvent());
             this.log.trace("[EVENT] GameWarmupEvent");
             
         } catch (InterruptedException e) {
@@ -2058,18 +2511,323 @@ public class UrT42Parser implements Parser {
      * @return A <tt>Map</tt> containing the infostring (stored as <tt>key|value</tt>)
      **/
     public Map<String,String> parseInfoString(String info) {
+        return new InfoString(info).getMap();
+    }
+    
+    
+    /**
+     * Return the <tt>Client</tt> computed by a completed authentication
+     * 
+     * @author Daniele Pantaleone
+     * @param  future The <tt>Future</tt> of the authentication
+     * @param  placeholder The <tt>Client</tt> to be returned if the authentication failed
+     * @return The authenticated <tt>Client</tt> or the placeholder if the authentication failed
+     **/
+    private static Client getClient(Future<Client> future, Client placeholder) {
         
-        Map<String, String> userinfo = new HashMap<String, String>();
+        try {
+            
+            Client client = future.get();
+            return client != null ? client : placeholder;
+            
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            return placeholder;
+        }
         
-        if (info.charAt(0) == '\\')
-            info = info.substring(1);
+    }
+    
+    
+    /**
+     * Return the slice of the log line captured by the given group of a <tt>Matcher</tt>.
+     * The group has to be referenced by number since named groups don't expose their offsets
+     * 
+     * @author Daniele Pantaleone
+     * @param  matcher A <tt>Matcher</tt> object matching a whole log line
+     * @param  group The number of the capturing group
+     * @return The slice of the log line captured by the given group or <tt>null</tt>
+     *         if the group didn't capture anything
+     **/
+    private static LineSlice getSlice(Matcher matcher, int group) {
         
-        String lines[] = info.split("\\\\");
+        int start = matcher.start(group);
+        if (start == -1)
+            return null;
         
-        for (int i = 0; i < lines.length; i+=2)
-            userinfo.put(lines[i].toLowerCase(), lines[i+1]);
-      
-        return userinfo;
+        // the whole log line matched: group() returns the line itself
+        return new LineSlice(matcher.group(), start, matcher.end(group));
+        
+    }
+    
+    
+    /**
+     * Return the keyword a pattern expects right after the log line timestamp
+     * 
+     * @author Daniele Pantaleone
+     * @param  pattern A compiled URT42 log line pattern
+     * @return The lowercase keyword matched by the given pattern
+     **/
+    private static String getPatternKeyword(Pattern pattern) {
+        
+        // every pattern starts with ^\s*\d+:\d+ followed by \s? or \s
+        String regex = pattern.pattern();
+        int start = regex.indexOf("\\d+", regex.indexOf(':')) + 3;
+        
+        if (regex.startsWith("\\s", start))
+            start += 2;
+        
+        if (regex.startsWith("?", start))
+            start += 1;
+        
+        int end = start;
+        while (end < regex.length() && Character.isLetter(regex.charAt(end)))
+            end++;
+        
+        return regex.substring(start, end).toLowerCase();
+        
+    }
+    
+    
+    /**
+     * Return the index of the keyword following the timestamp of a log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @return The index of the keyword of the given log line or <tt>-1</tt> 
+     *         if the line doesn't start with a timestamp
+     **/
+    private static int getKeywordIndex(String line) {
+        
+        int length = line.length();
+        int index = 0;
+        
+        while (index < length && Character.isWhitespace(line.charAt(index)))
+            index++;
+        
+        // matching the minutes, the colon and the seconds
+        int mark = index;
+        while (index < length && Character.isDigit(line.charAt(index)))
+            index++;
+        
+        if (index == mark || index == length || line.charAt(index++) != ':')
+            return -1;
+        
+        mark = index;
+        while (index < length && Character.isDigit(line.charAt(index)))
+            index++;
+        
+        if (index == mark)
+            return -1;
+        
+        while (index < length && Character.isWhitespace(line.charAt(index)))
+            index++;
+        
+        return index;
+        
+    }
+    
+    
+    /**
+     * Return the keyword starting at the given index of a log line
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @param  index The index of the keyword as returned by <tt>getKeywordIndex</tt>
+     * @return The lowercase keyword of the given log line or <tt>null</tt> 
+     *         if there is no keyword at the given index
+     **/
+    private static String getLineKeyword(String line, int index) {
+        
+        int end = index;
+        while (end < line.length() && Character.isLetter(line.charAt(end)))
+            end++;
+        
+        if (end == index)
+            return null;
+        
+        return line.substring(index, end).toLowerCase();
+        
+    }
+    
+    
+    /**
+     * Read a sequence of whitespace separated numbers from a log line into the
+     * given decoding buffer. Every number must be preceded by a single whitespace
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @param  index The index where to start reading
+     * @param  numbers The buffer where to store the numbers read
+     * @return The index following the last number read or <tt>-1</tt>
+     *         if the line doesn't match the expected format
+     **/
+    private static int decodeNumbers(String line, int index, int[] numbers) {
+        
+        int length = line.length();
+        
+        for (int i = 0; i < numbers.length; i++) {
+            
+            if (index >= length || !Character.isWhitespace(line.charAt(index++)))
+                return -1;
+            
+            int mark = index;
+            int value = 0;
+            
+            // slots and codes are small: anything longer is not worth the
+            // overflow check and is left to the regular expression
+            while (index < length && index - mark < 9 && line.charAt(index) >= '0' && line.charAt(index) <= '9')
+                value = value * 10 + line.charAt(index++) - '0';
+            
+            if (index == mark)
+                return -1;
+            
+            numbers[i] = value;
+            
+        }
+        
+        return index;
+        
+    }
+    
+    
+    /**
+     * Decode the most frequent log lines (Hit, Kill and Item) without going
+     * through the regular expressions: the numbers are read straight from
+     * the log line. Lines not in the expected format are left to the patterns
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @param  index The index of the keyword as returned by <tt>getKeywordIndex</tt>
+     * @return The task handling the log line, <tt>DISCARDED</tt> if nobody is
+     *         interested in the log line or <tt>null</tt> if it has not been decoded
+     **/
+    private Runnable decodeLine(String line, int index) {
+        
+        int end;
+        
+        if (line.regionMatches(true, index, "Hit:", 0, 4)) {
+            
+            if (!this.isWanted("hit"))
+                return DISCARDED;
+            
+            // 0:00 Hit: 12 7 1 19: [Gore]Pinhead hit Fapking in the Helmet
+            final int[] numbers = new int[4];
+            end = decodeNumbers(line, index + 4, numbers);
+            if (end == -1 || end + 1 >= line.length() || line.charAt(end) != ':' || !Character.isWhitespace(line.charAt(end + 1)))
+                return null;
+            
+            return new LineTask(line) {
+                protected void apply() {
+                    UrT42Parser.this.onHit(numbers[0], numbers[1], numbers[2], numbers[3]);
+                }
+            };
+            
+        }
+        
+        if (line.regionMatches(true, index, "Kill:", 0, 5)) {
+            
+            if (!this.isWanted("kill"))
+                return DISCARDED;
+            
+            // 0:00 Kill: 0 1 16: Fenix killed WizardOfGore by UT_MOD_SPAS
+            final int[] numbers = new int[3];
+            end = decodeNumbers(line, index + 5, numbers);
+            if (end == -1 || end + 1 >= line.length() || line.charAt(end) != ':' || !Character.isWhitespace(line.charAt(end + 1)))
+                return null;
+            
+            return new LineTask(line) {
+                protected void apply() {
+                    UrT42Parser.this.onKill(numbers[0], numbers[1], numbers[2]);
+                }
+            };
+            
+        }
+        
+        if (line.regionMatches(true, index, "Item:", 0, 5)) {
+            
+            if (!this.isWanted("item"))
+                return DISCARDED;
+            
+            // 0:00 Item: 0 ut_item_deagle
+            final int[] numbers = new int[1];
+            end = decodeNumbers(line, index + 5, numbers);
+            if (end == -1 || end >= line.length() || !Character.isWhitespace(line.charAt(end)))
+                return null;
+            
+            final String name = line.substring(end + 1);
+            return new LineTask(line) {
+                protected void apply() {
+                    UrT42Parser.this.onItem(numbers[0], name);
+                }
+            };
+            
+        }
+        
+        return null;
+        
+    }
+    
+    
+    /**
+     * Register a <tt>LineHandler</tt> for the log lines matching the given pattern.
+     * The pattern is tried only on log lines whose first word after the
+     * timestamp equals the given keyword (case insensitive)
+     * 
+     * @author Daniele Pantaleone
+     * @param  keyword The keyword following the timestamp of the handled log lines
+     * @param  pattern The <tt>Pattern</tt> matching the whole log line
+     * @param  handler The <tt>LineHandler</tt> to be invoked on every matched log line
+     **/
+    public void addLineHandler(String keyword, Pattern pattern, LineHandler handler) {
+        
+        checkNotNull(pattern);
+        checkNotNull(handler);
+        
+        synchronized (this.handlers) {
+            
+            keyword = keyword.toLowerCase();
+            if (!this.handlers.containsKey(keyword))
+                this.handlers.put(keyword, new CopyOnWriteArrayList<LineRule>());
+            
+            this.handlers.get(keyword).add(new LineRule(pattern, handler));
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Register a <tt>LogLineHandler</tt> for the log lines described by the given grammar rule.
+     * Rules are matched right after the timestamp and before any pattern: registering
+     * again a rule name replaces both the rule and its handler
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The name of the rule
+     * @param  grammar The grammar of the handled log lines (see <tt>LogGrammar</tt>)
+     * @param  handler The <tt>LogLineHandler</tt> to be invoked on every matched log line
+     * @throws ParserException If the grammar rule is malformed or conflicts with another rule
+     **/
+    public void addGrammarRule(String name, String grammar, LogLineHandler handler) throws ParserException {
+        
+        checkNotNull(grammar);
+        checkNotNull(handler);
+        
+        synchronized (this.rules) {
+            
+            // the grammar being matched is never modified: a new one 
+            // is compiled and published once the handler is in place
+            LogGrammar compiled = new LogGrammar();
+            
+            for (Map.Entry<String, String> entry : this.rules.entrySet())
+                if (!entry.getKey().equals(name))
+                    compiled.addRule(entry.getKey(), entry.getValue());
+            
+            compiled.addRule(name, grammar);
+            
+            this.rules.put(name, grammar);
+            this.ruleHandlers.put(name, handler);
+            this.grammar = compiled;
+            
+        }
         
     }
     
@@ -2083,36 +2841,161 @@ public class UrT42Parser implements Parser {
      **/
     public void parseLine(String line) {
         
-        Matcher matcher = null;
+        Runnable task = this.prepareLine(line);
+        if (task != null)
+            task.run();
+        
+    }
+    
+    
+    /**
+     * Recognize a log line and extract its fields without touching the 
+     * clients or the game state: can be invoked by many threads at once
+     * 
+     * @author Daniele Pantaleone
+     * @param  line A log line
+     * @return The task handling the log line or <tt>null</tt> if the log line has to be discarded
+     **/
+    public Runnable prepareLine(String line) {
+        
+        int index = getKeywordIndex(line);
+        if (index == -1)
+            return null;
         
-        // iterating through all the patters trying to find a match
-        for (Map.Entry<String, Pattern> entry : patterns.entrySet()) { 
+        try {
             
-            // getting a matcher for the current line
-            matcher = entry.getValue().matcher(line);
-            if (!matcher.matches()) 
-                continue;
+            // high frequency lines are decoded by hand
+            Runnable task = this.decodeLine(line, index);
+            if (task != null)
+                return task == DISCARDED ? null : task;
             
-            try {
+            // lines described by the grammar are recognized
+            // and split into their fields in a single pass
+            final LogLine match = this.grammar.match(line, index);
+            if (match != null) {
                 
-                this.getClass()
-                    .getMethod("on" + entry.getKey(), Matcher.class)
-                    .invoke(this, matcher);
-                
-            } catch (IllegalAccessException | 
-                     IllegalArgumentException | 
-                     InvocationTargetException | 
-                     SecurityException | 
-                     NoSuchMethodException e) {
+                final LogLineHandler handler = this.ruleHandlers.get(match.getRule());
+                return new LineTask(line) {
+                    protected void apply() {
+                        handler.handle(match);
+                    }
+                };
                 
-                this.log.error(e.getCause());
+            }
+            
+            String keyword = getLineKeyword(line, index);
+            if (keyword == null || !this.isWanted(keyword))
+                return null;
             
+            // lines whose keyword is not handled are
+            // discarded without running any pattern
+            List<LineRule> rules = this.handlers.get(keyword);
+            if (rules == null)
+                return null;
+            
+            // iterating through the patterns sharing the line keyword
+            for (final LineRule rule : rules) { 
+                
+                // getting a matcher for the current line
+                final Matcher matcher = rule.pattern.matcher(line);
+                if (!matcher.matches()) 
+                    continue;
+                
+                return new LineTask(line) {
+                    protected void apply() {
+                        rule.handler.handle(matcher);
+                    }
+                };
+                
             }
             
-            break;
+        } catch (RuntimeException e) {
+            
+            this.log.error("Unable to handle log line: " + line, e);
             
         }
+        
+        return null;
            
     }
+    
+    
+    /**
+     * The handling of a recognized log line: it updates the clients and 
+     * the game state so tasks have to be run one at a time in log order
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private abstract class LineTask implements Runnable {
+        
+        private final String line;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  line The log line to be handled
+         **/
+        public LineTask(String line) {
+            this.line = line;
+        }
+        
+        
+        /**
+         * Handle the log line, logging any failure
+         * 
+         * @author Daniele Pantaleone
+         **/
+        public void run() {
+            
+            try {
+                
+                this.apply();
+                
+            } catch (RuntimeException e) {
+                
+                UrT42Parser.this.log.error("Unable to handle log line: " + this.line, e);
+                
+            }
+            
+        }
+        
+        
+        /**
+         * Handle the log line
+         * 
+         * @author Daniele Pantaleone
+         **/
+        protected abstract void apply();
+        
+    }
+    
+    
+    /**
+     * A <tt>Pattern</tt> bound to the <tt>LineHandler</tt> 
+     * to be invoked on the log lines it matches
+     * 
+     * @author Daniele Pantaleone
+     **/
+    private static class LineRule {
+        
+        private final Pattern pattern;
+        private final LineHandler handler;
+        
+        
+        /**
+         * Object constructor
+         * 
+         * @author Daniele Pantaleone
+         * @param  pattern The <tt>Pattern</tt> matching the log line
+         * @param  handler The <tt>LineHandler</tt> to be invoked
+         **/
+        public LineRule(Pattern pattern, LineHandler handler) {
+            this.pattern = pattern;
+            this.handler = handler;
+        }
+        
+    }
 
 }
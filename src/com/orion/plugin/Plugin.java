@@ -27,12 +27,16 @@
 
 package com.orion.plugin;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.Map;
 import java.util.Timer;
+import java.util.TimerTask;
+import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 
@@ -42,16 +46,20 @@ import com.orion.bot.Orion;
 import com.orion.command.Command;
 import com.orion.console.Console;
 import com.orion.console.UrT42Console;
-import com.orion.control.AliasC;
-import com.orion.control.CallvoteC;
-import com.orion.control.ClientC;
-import com.orion.control.GroupC;
-import com.orion.control.IpAliasC;
-import com.orion.control.PenaltyC;
+import com.orion.control.AliasCtl;
+import com.orion.control.CallvoteCtl;
+import com.orion.control.ClientCtl;
+import com.orion.control.GroupCtl;
+import com.orion.control.IpAliasCtl;
+import com.orion.control.PenaltyCtl;
 import com.orion.domain.Group;
 import com.orion.exception.CommandRegisterException;
+import com.orion.exception.ParserException;
 import com.orion.exception.PluginNotFoundException;
 import com.orion.misc.RegisteredCommand;
+import com.orion.misc.Subscriptions;
+import com.orion.parser.MethodLineHandler;
+import com.orion.parser.MethodLogLineHandler;
 import com.orion.parser.Parser;
 import com.orion.urt.Game;
 import com.orion.utility.Configuration;
@@ -66,20 +74,22 @@ public abstract class Plugin {
     protected final Parser parser;
     protected final Configuration config;
     
-    protected final GroupC groups;
-    protected final ClientC clients;
-    protected final AliasC aliases;
-    protected final CallvoteC callvotes;
-    protected final IpAliasC ipaliases;
-    protected final PenaltyC penalties;
+    protected final GroupCtl groups;
+    protected final ClientCtl clients;
+    protected final AliasCtl aliases;
+    protected final CallvoteCtl callvotes;
+    protected final IpAliasCtl ipaliases;
+    protected final PenaltyCtl penalties;
     
     protected Game game;
     
-    protected Map<String, Timer> schedule;
+    protected Map<String, TimerTask> schedule;
+    protected Timer timer;
     protected Map<String, Plugin> plugins;
     protected MultiKeyMap<String, String, RegisteredCommand> regcommands;
     
     protected EventBus eventBus;
+    protected Subscriptions subscriptions;
     
     protected boolean enabled = true;
     
@@ -108,10 +118,12 @@ public abstract class Plugin {
         this.game = orion.game;
         
         this.schedule = orion.schedule;
+        this.timer = orion.timer;
         this.plugins = orion.plugins;
         this.regcommands = orion.regcommands;
         
         this.eventBus = orion.eventBus;
+        this.subscriptions = orion.subscriptions;
         
         this.config = config;
         
@@ -159,7 +171,14 @@ public abstract class Plugin {
      * @param  enabled <tt>true</tt> if we want to enable the plugin, <tt>false</tt> otherwise
      **/
     public void setEnabled(boolean enabled) {
+        
         this.enabled = enabled;
+        
+        // Let the parser know whether the events
+        // of this plugin are still worth generating
+        if (this.subscriptions != null)
+            this.subscriptions.refresh();
+        
     }
     
     
@@ -264,10 +283,12 @@ public abstract class Plugin {
          
         try {
             
-            // Create a new Timer object for this cronjob
-            // in which we will store the method execution call
-            this.schedule.put(name, new Timer(name));
-            this.schedule.get(name).scheduleAtFixedRate(new Cron(this.orion, handler, this), delay, period);
+            // Scheduling the cronjob on the Orion timer: a single
+            // Thread serves all the cronjobs so it's better to
+            // keep the cronjob methods as fast as possible
+            Cron cron = new Cron(this.orion, handler, this);
+            this.schedule.put(name, cron);
+            this.timer.scheduleAtFixedRate(cron, delay, period);
             
         } catch (NoSuchMethodException | SecurityException e) {
             
@@ -279,6 +300,62 @@ public abstract class Plugin {
     }
     
     
+    /**
+     * Register a <tt>Method</tt> as handler of the log lines matching the given pattern.
+     * The <tt>Method</tt> must be public and accept the <tt>Matcher</tt> 
+     * object which matched the log line as its only input parameter
+     * 
+     * @author Daniele Pantaleone
+     * @param  keyword The keyword following the timestamp of the handled log lines
+     * @param  pattern The <tt>Pattern</tt> matching the whole log line
+     * @param  handler The name of the <tt>Method</tt> to be invoked on every matched log line
+     **/
+    protected void addLineHandler(String keyword, Pattern pattern, String handler) {
+        
+        try {
+            
+            // The handler is bound once here: the parser will invoke
+            // it directly without looking it up on every log line
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(this.getClass(), handler, MethodLineHandler.TYPE);
+            this.parser.addLineHandler(keyword, pattern, new MethodLineHandler(handle.bindTo(this)));
+            
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            
+            // Logging the Exception
+            this.error("Unable to register line handler [ method : " + handler + " ]", e);
+            
+        }
+        
+    }
+    
+    
+    /**
+     * Register a <tt>Method</tt> as handler of the log lines described by the given grammar rule.
+     * The <tt>Method</tt> must be public and accept the <tt>LogLine</tt> 
+     * object holding the fields of the log line as its only input parameter
+     * 
+     * @author Daniele Pantaleone
+     * @param  name The name of the rule
+     * @param  grammar The grammar of the handled log lines (see <tt>LogGrammar</tt>)
+     * @param  handler The name of the <tt>Method</tt> to be invoked on every matched log line
+     **/
+    protected void addGrammarRule(String name, String grammar, String handler) {
+        
+        try {
+            
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(this.getClass(), handler, MethodLogLineHandler.TYPE);
+            this.parser.addGrammarRule(name, grammar, new MethodLogLineHandler(handle.bindTo(this)));
+            
+        } catch (NoSuchMethodException | IllegalAccessException | ParserException e) {
+            
+            // Logging the Exception
+            this.error("Unable to register grammar rule [ rule : " + name + " | method : " + handler + " ]", e);
+            
+        }
+        
+    }
+    
+    
     /**
      * Return the <tt>Plugin</tt> matching the given name
      * 
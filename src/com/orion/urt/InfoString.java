@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2012 Daniele Pantaleone, Mathias Van Malderen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ * @author      Daniele Pantaleone
+ * @version     1.0
+ * @copyright   Daniele Pantaleone, 1 November, 2013
+ * @package     com.orion.urt
+ **/
+
+package com.orion.urt;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class InfoString {
+    
+    public static final String GEAR = "gear";
+    public static final String GUID = "cl_guid";
+    public static final String IP = "ip";
+    public static final String NAME = "name";
+    public static final String SKILL = "skill";
+    public static final String TEAM = "team";
+    public static final String SHORT_NAME = "n";
+    public static final String SHORT_TEAM = "t";
+    
+    private static final String[] KEYS = { GEAR, GUID, IP, NAME, SKILL, TEAM, SHORT_NAME, SHORT_TEAM };
+    
+    private final String[] values = new String[KEYS.length];
+    private int[] unknown = new int[16];
+    private int unknownSize;
+    
+    private String info;
+    private Map<String, String> map;
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     **/
+    public InfoString() {
+        this.info = "";
+    }
+    
+    
+    /**
+     * Object constructor
+     * 
+     * @author Daniele Pantaleone
+     * @param  info The infostring to be parsed
+     **/
+    public InfoString(String info) {
+        this.parse(info);
+    }
+    
+    
+    /**
+     * Parse an infostring replacing the previously parsed one.<br>
+     * InfoString format: \ip\110.143.73.144:27960\challenge\1052098110\qport\51418\protocol\68...<br>
+     * The values of the well known keys are extracted in a single pass: the
+     * remaining pairs are just remembered and decoded only if a <tt>Map</tt> is requested
+     * 
+     * @author Daniele Pantaleone
+     * @param  info The infostring to be parsed
+     * @return This <tt>InfoString</tt> object
+     **/
+    public InfoString parse(String info) {
+        
+        this.info = info;
+        this.map = null;
+        this.unknownSize = 0;
+        Arrays.fill(this.values, null);
+        
+        int length = info.length();
+        int index = length > 0 && info.charAt(0) == '\\' ? 1 : 0;
+        
+        while (index < length) {
+            
+            int keyEnd = this.next(index);
+            int valueEnd = keyEnd < length ? this.next(keyEnd + 1) : length;
+            
+            int key = this.indexOf(index, keyEnd);
+            if (key != -1) {
+                this.values[key] = keyEnd < length ? info.substring(keyEnd + 1, valueEnd) : "";
+            } else {
+                if (this.unknownSize == this.unknown.length)
+                    this.unknown = Arrays.copyOf(this.unknown, this.unknownSize * 2);
+                this.unknown[this.unknownSize++] = index;
+            }
+            
+            index = valueEnd + 1;
+            
+        }
+        
+        return this;
+        
+    }
+    
+    
+    /**
+     * Return the value of the given key
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The key whose value has to be returned
+     * @return The value of the given key or <tt>null</tt> if the key is not in the infostring
+     **/
+    public String get(String key) {
+        
+        for (int i = 0; i < KEYS.length; i++)
+            if (KEYS[i] == key || KEYS[i].equalsIgnoreCase(key))
+                return this.values[i];
+        
+        return this.getMap().get(key.toLowerCase());
+        
+    }
+    
+    
+    /**
+     * Tells whether the infostring contains the given key
+     * 
+     * @author Daniele Pantaleone
+     * @param  key The key to be checked
+     * @return <tt>true</tt> if the infostring contains the given key, <tt>false</tt> otherwise
+     **/
+    public boolean containsKey(String key) {
+        return this.get(key) != null;
+    }
+    
+    
+    /**
+     * Return a <tt>Map</tt> containing the whole infostring (stored as <tt>key|value</tt>).
+     * Keys are lowercase. The <tt>Map</tt> is built on the first call and
+     * returned again until another infostring is parsed
+     * 
+     * @author Daniele Pantaleone
+     * @return A <tt>Map</tt> containing the whole infostring
+     **/
+    public Map<String, String> getMap() {
+        
+        if (this.map != null)
+            return this.map;
+        
+        this.map = new HashMap<String, String>();
+        
+        for (int i = 0; i < KEYS.length; i++)
+            if (this.values[i] != null)
+                this.map.put(KEYS[i], this.values[i]);
+        
+        int length = this.info.length();
+        
+        for (int i = 0; i < this.unknownSize; i++) {
+            int index = this.unknown[i];
+            int keyEnd = this.next(index);
+            int valueEnd = keyEnd < length ? this.next(keyEnd + 1) : length;
+            this.map.put(this.info.substring(index, keyEnd).toLowerCase(), keyEnd < length ? this.info.substring(keyEnd + 1, valueEnd) : "");
+        }
+        
+        return this.map;
+        
+    }
+    
+    
+    /**
+     * Return the index of the next separator in the infostring
+     * 
+     * @author Daniele Pantaleone
+     * @param  index The index where to start searching
+     * @return The index of the next separator or the infostring length if there is none
+     **/
+    private int next(int index) {
+        int next = this.info.indexOf('\\', index);
+        return next == -1 ? this.info.length() : next;
+    }
+    
+    
+    /**
+     * Return the index of the well known key spanning the given infostring region
+     * 
+     * @author Daniele Pantaleone
+     * @param  start The index of the first character of the key
+     * @param  end The index following the last character of the key
+     * @return The index of the well known key or <tt>-1</tt> if the key is not well known
+     **/
+    private int indexOf(int start, int end) {
+        
+        for (int i = 0; i < KEYS.length; i++)
+            if (KEYS[i].length() == end - start && this.info.regionMatches(true, start, KEYS[i], 0, end - start))
+                return i;
+        
+        return -1;
+        
+    }
+    
+    
+    /**
+     * <tt>String</tt> object representation
+     * 
+     * @author Daniele Pantaleone
+     * @return A <tt>String</tt> representing the parsed infostring
+     **/
+    public String toString() {
+        return this.info;
+    }
+    
+}